@@ -0,0 +1,85 @@
+package com.litao.android.lib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame interpolation work of a swipe, evaluated once for every tab: the indicator edge
+ * easing, the tab scale and the tab text color.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabInterpolatorBenchmark {
+
+    private static final int UNSELECTED_COLOR = 0xFF666666;
+    private static final int SELECTED_COLOR = 0xFF000000;
+
+    @Param({"10", "100", "1000"})
+    public int tabCount;
+
+    private float[] fractions;
+    private TabInterpolator lookupTableInterpolator;
+    private TabInterpolator directInterpolator;
+
+    @Setup
+    public void setUp() {
+        fractions = new float[tabCount];
+        for (int i = 0; i < tabCount; i++) {
+            fractions[i] = (i % 97) / 96f;
+        }
+        lookupTableInterpolator = new TabInterpolator(UNSELECTED_COLOR, SELECTED_COLOR, true);
+        directInterpolator = new TabInterpolator(UNSELECTED_COLOR, SELECTED_COLOR, false);
+    }
+
+    @Benchmark
+    public float lerp() {
+        float sum = 0f;
+        for (float fraction : fractions) {
+            sum += TabInterpolator.lerp(0.8f, 1f, fraction);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float edgeInterpolation() {
+        float sum = 0f;
+        for (float fraction : fractions) {
+            sum += TabInterpolator.leftInterpolation(fraction)
+                    + TabInterpolator.rightInterpolation(fraction);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int colorLookupTable() {
+        int hash = 0;
+        for (float fraction : fractions) {
+            hash ^= lookupTableInterpolator.colorAt(fraction);
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public int colorDirect() {
+        int hash = 0;
+        for (float fraction : fractions) {
+            hash ^= directInterpolator.colorAt(fraction);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,100 @@
+package com.litao.android.lib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tab bound math: rebuilding the geometry after a layout pass, and the indicator and viewport
+ * lookups done on every scroll frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabStripGeometryBenchmark {
+
+    private static final float INDICATOR_WIDTH_RATIO = 0.5f;
+    private static final int MIN_INDICATOR_WIDTH = 72;
+    private static final int VIEWPORT_WIDTH = 1080;
+
+    @Param({"10", "100", "1000"})
+    public int tabCount;
+
+    private int[] widths;
+    private int[] contentWidths;
+    private TabStripGeometry geometry;
+
+    @Setup
+    public void setUp() {
+        widths = new int[tabCount];
+        contentWidths = new int[tabCount];
+        for (int i = 0; i < tabCount; i++) {
+            widths[i] = 160 + (i * 37) % 120;
+            contentWidths[i] = widths[i] - 48;
+        }
+        geometry = new TabStripGeometry();
+        layout();
+    }
+
+    @Benchmark
+    public int layout() {
+        final TabStripGeometry geometry = this.geometry;
+        geometry.reset(tabCount, false);
+        int left = 0;
+        for (int i = 0; i < tabCount; i++) {
+            final int right = left + widths[i];
+            final int contentWidth = Math.max(contentWidths[i], MIN_INDICATOR_WIDTH);
+            geometry.set(
+                    i,
+                    left,
+                    right,
+                    TabStripGeometry.contentLeft(left, right, contentWidth, INDICATOR_WIDTH_RATIO),
+                    TabStripGeometry.contentRight(left, right, contentWidth, INDICATOR_WIDTH_RATIO));
+            left = right;
+        }
+        return left;
+    }
+
+    /** Indicator bounds half way between every pair of neighbouring tabs. */
+    @Benchmark
+    public int indicatorFrames() {
+        final TabStripGeometry geometry = this.geometry;
+        final float offset = 0.5f;
+        final float leftFraction = TabInterpolator.leftInterpolation(offset);
+        final float rightFraction = TabInterpolator.rightInterpolation(offset);
+        int sum = 0;
+        for (int i = 0, z = tabCount - 1; i < z; i++) {
+            sum += (int) TabInterpolator.lerp(
+                    geometry.getContentLeft(i), geometry.getContentLeft(i + 1), leftFraction);
+            sum += (int) TabInterpolator.lerp(
+                    geometry.getContentRight(i), geometry.getContentRight(i + 1), rightFraction);
+        }
+        return sum;
+    }
+
+    /** Visible range lookup with the viewport starting at every tab. */
+    @Benchmark
+    public int visibleRange() {
+        final TabStripGeometry geometry = this.geometry;
+        int sum = 0;
+        for (int i = 0; i < tabCount; i++) {
+            final int from = geometry.getLeft(i);
+            sum += geometry.firstVisible(from, from + VIEWPORT_WIDTH)
+                    + geometry.lastVisible(from, from + VIEWPORT_WIDTH);
+        }
+        return sum;
+    }
+}
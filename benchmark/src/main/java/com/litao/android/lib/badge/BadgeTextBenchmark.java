@@ -0,0 +1,62 @@
+package com.litao.android.lib.badge;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Badge text formatting for one numeric badge per tab, with a mix of numbers below and above the
+ * max badge number.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BadgeTextBenchmark {
+
+    private static final int MAX_CHARACTER_COUNT = 4;
+
+    @Param({"10", "100", "1000"})
+    public int tabCount;
+
+    private int[] numbers;
+    private int maxBadgeNumber;
+
+    @Setup
+    public void setUp() {
+        numbers = new int[tabCount];
+        for (int i = 0; i < tabCount; i++) {
+            numbers[i] = (i * 131) % 1500;
+        }
+        maxBadgeNumber = BadgeText.maxBadgeNumber(MAX_CHARACTER_COUNT);
+    }
+
+    @Benchmark
+    public void getBadgeText(Blackhole blackhole) {
+        for (int number : numbers) {
+            blackhole.consume(BadgeText.format(number, maxBadgeNumber));
+        }
+    }
+
+    @Benchmark
+    public int updateMaxBadgeNumber() {
+        int sum = 0;
+        for (int i = 0; i < tabCount; i++) {
+            sum += BadgeText.maxBadgeNumber(1 + i % 6);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,113 @@
+package com.litao.android.lib;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Pending badge numbers by tab position, written from any thread and drained on the main thread.
+ * Each position has one slot holding the last number written to it, so a burst of updates costs a
+ * single drain however many numbers it carries.
+ *
+ * <p>Writers take a lock among themselves, the drain never blocks and is never blocked. When the
+ * slots grow, each number is moved to the new slots with an atomic swap, so it is either drained
+ * from the old slots or found in the new ones, never lost or delivered twice.
+ */
+final class BadgeSlots {
+
+    /** Number of a slot which has no pending number. */
+    static final int EMPTY = Integer.MIN_VALUE;
+
+    /** Receives the numbers of a {@link #drain(Sink)}. */
+    interface Sink {
+        void onBadgeNumber(int position, int number);
+    }
+
+    // Guards writes and growth, so no write lands in slots being replaced
+    private final Object writeLock = new Object();
+    @NonNull private volatile AtomicIntegerArray slots;
+    // Set by the first write after a drain, tells the writer to schedule the next drain
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    BadgeSlots(int initialCapacity) {
+        slots = newSlots(Math.max(initialCapacity, 1));
+    }
+
+    /**
+     * Stores {@code number} as the pending number of the tab at {@code position}, replacing the one
+     * stored before. Negative numbers are stored as -1.
+     *
+     * @return true if no drain was pending, the caller then has to schedule one
+     * @throws IllegalArgumentException if {@code position} is negative
+     */
+    boolean put(int position, int number) {
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative tab position " + position);
+        }
+        synchronized (writeLock) {
+            ensureCapacityLocked(position + 1).set(position, Math.max(number, -1));
+        }
+        // Also covers numbers moved by a growth during a drain, which that drain did not see
+        return pending.compareAndSet(false, true);
+    }
+
+    /**
+     * Grows the slots to hold at least {@code capacity} positions, e.g. from the main thread when
+     * tabs are added, so that writers rarely have to.
+     */
+    void ensureCapacity(int capacity) {
+        synchronized (writeLock) {
+            ensureCapacityLocked(capacity);
+        }
+    }
+
+    /**
+     * Hands the pending number of every slot to {@code sink}, in position order, and empties the
+     * slots. Numbers written during the drain are either part of it or of the next one.
+     */
+    void drain(@NonNull Sink sink) {
+        pending.set(false);
+        final AtomicIntegerArray array = slots;
+        for (int i = 0, z = array.length(); i < z; i++) {
+            final int number = array.getAndSet(i, EMPTY);
+            if (number != EMPTY) {
+                sink.onBadgeNumber(i, number);
+            }
+        }
+    }
+
+    /** Returns whether a number was written since the last drain. */
+    boolean isPending() {
+        return pending.get();
+    }
+
+    /** Returns the number of positions the slots hold. */
+    int capacity() {
+        return slots.length();
+    }
+
+    @NonNull
+    private AtomicIntegerArray ensureCapacityLocked(int capacity) {
+        final AtomicIntegerArray current = slots;
+        if (current.length() >= capacity) {
+            return current;
+        }
+        final AtomicIntegerArray grown = newSlots(Math.max(capacity, current.length() * 2));
+        for (int i = 0, z = current.length(); i < z; i++) {
+            // Moved rather than copied, a concurrent drain takes each number at most once
+            grown.set(i, current.getAndSet(i, EMPTY));
+        }
+        slots = grown;
+        return grown;
+    }
+
+    @NonNull
+    private static AtomicIntegerArray newSlots(int capacity) {
+        final AtomicIntegerArray array = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            array.set(i, EMPTY);
+        }
+        return array;
+    }
+}
@@ -2,21 +2,17 @@ package com.litao.android.lib;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
-import android.animation.ArgbEvaluator;
-import android.animation.FloatEvaluator;
 import android.animation.TimeInterpolator;
-import android.animation.TypeEvaluator;
 import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.ColorStateList;
-import android.content.res.Resources;
-import android.content.res.TypedArray;
 import android.database.DataSetObserver;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
+import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
@@ -24,33 +20,44 @@ import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
 import android.text.Layout;
+import android.text.StaticLayout;
 import android.text.TextPaint;
 import android.text.TextUtils;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.util.SparseIntArray;
 import android.view.Gravity;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.SoundEffectConstants;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
-import android.widget.FrameLayout;
 import android.widget.HorizontalScrollView;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import com.litao.android.lib.badge.BadgeDrawable;
-import com.litao.android.lib.badge.BadgeUtils;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import androidx.annotation.BoolRes;
 import androidx.annotation.ColorInt;
@@ -58,6 +65,7 @@ import androidx.annotation.Dimension;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.IntDef;
 import androidx.annotation.LayoutRes;
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
@@ -65,15 +73,18 @@ import androidx.annotation.RestrictTo;
 import androidx.annotation.StringRes;
 import androidx.appcompat.app.ActionBar;
 import androidx.appcompat.content.res.AppCompatResources;
+import androidx.appcompat.widget.AppCompatImageView;
+import androidx.appcompat.widget.AppCompatTextView;
 import androidx.appcompat.widget.TooltipCompat;
-import androidx.core.content.ContextCompat;
 import androidx.core.graphics.drawable.DrawableCompat;
-import androidx.core.util.Pools;
+import androidx.core.text.PrecomputedTextCompat;
 import androidx.core.view.GravityCompat;
 import androidx.core.view.MarginLayoutParamsCompat;
 import androidx.core.view.PointerIconCompat;
 import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
 import androidx.core.widget.TextViewCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
 import androidx.interpolator.view.animation.FastOutSlowInInterpolator;
 import androidx.viewpager.widget.PagerAdapter;
 import androidx.viewpager.widget.ViewPager;
@@ -107,15 +118,24 @@ public class NiftyTabLayout extends HorizontalScrollView {
     @Dimension(unit = Dimension.DP)
     static final int FIXED_WRAP_GUTTER_MIN = 16;
 
-    private static final int INVALID_WIDTH = -1;
+    static final int INVALID_WIDTH = -1;
 
-    private static final int ANIMATION_DURATION = 300;
+    static final int ANIMATION_DURATION = 300;
 
-    private static final float DEFAULT_INDICATOR_WIDTH_RATIO = 0.5F;
+    /** Number of tabs kept bound on each side of the viewport in the virtualized tab strip. */
+    private static final int VIRTUAL_OFFSCREEN_TAB_COUNT = 2;
 
-    private static final boolean DEFAULT_ENABLE_TINT_INDICATOR = true;
+    /** Number of TabViews built per idle callback while pre-warming, roughly one frame of work. */
+    private static final int PREWARM_TAB_VIEWS_PER_IDLE = 2;
 
-    private static final Pools.Pool<Tab> tabPool = new Pools.SynchronizedPool<>(16);
+    /** Tab positions with a badge slot before the slots grow, see {@link BadgeSlots}. */
+    private static final int INITIAL_BADGE_SLOTS = 16;
+
+    static final float DEFAULT_INDICATOR_WIDTH_RATIO = 0.5F;
+
+    static final boolean DEFAULT_ENABLE_TINT_INDICATOR = true;
+
+    private static final boolean DEFAULT_ENABLE_COLOR_LOOKUP_TABLE = true;
 
     /**
      * Scrollable tabs display a subset of tabs at any given moment, and can contain longer tab labels
@@ -263,6 +283,21 @@ public class NiftyTabLayout extends HorizontalScrollView {
     public interface OnTabSelectedListener extends BaseOnTabSelectedListener<Tab> {
     }
 
+    /**
+     * Callback interface invoked with the work done by the layout during a swipe.
+     *
+     * @see #setOnMetricsListener(OnMetricsListener)
+     */
+    public interface OnMetricsListener {
+        /**
+         * Called when a swipe settled.
+         *
+         * @param metrics The work done since the previous report. The instance is reused once this
+         *     method returns.
+         */
+        void onMetrics(@NonNull TabLayoutMetrics metrics);
+    }
+
     /** Callback interface invoked when a tab's selection state changes. */
     @Deprecated
     public interface BaseOnTabSelectedListener<T extends Tab> {
@@ -292,10 +327,18 @@ public class NiftyTabLayout extends HorizontalScrollView {
     private final ArrayList<Tab> tabs = new ArrayList<>();
     @Nullable private Tab selectedTab;
 
+    // Only non-null while a metrics listener is installed, every probe checks this first
+    @Nullable TabLayoutMetrics metrics;
+    @Nullable private OnMetricsListener metricsListener;
+    private boolean metricsSwipeActive;
+
     private final RectF tabViewContentBounds = new RectF();
 
     @NonNull private final SlidingTabIndicator slidingTabIndicator;
 
+    // The resolved attributes the values below were last set from
+    @NonNull private TabLayoutStyle style;
+
     int tabPaddingStart;
     int tabPaddingTop;
     int tabPaddingEnd;
@@ -309,7 +352,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
     float tabTextSize;
     float tabTextMultiLineSize;
 
-    final int tabBackgroundResId;
+    int tabBackgroundResId;
 
     boolean isSelectedTextBold;
 
@@ -326,23 +369,57 @@ public class NiftyTabLayout extends HorizontalScrollView {
     int iconTabHeight;
     boolean enableTintIndicator = DEFAULT_ENABLE_TINT_INDICATOR;
 
+    /**
+     * Whether only the tabs in and near the viewport own a {@link TabView}.
+     *
+     * @see #setTabStripVirtualized(boolean)
+     */
+    boolean virtualTabStrip;
+    private boolean virtualTabStripActive;
+
+    /**
+     * Whether tabs without a custom view are drawn by the tab strip instead of owning a TabView.
+     *
+     * @see #setTabDrawOnly(boolean)
+     */
+    boolean drawOnlyTabs;
+    private boolean drawOnlyTabsActive;
+
+    /**
+     * Whether the default tab icon and text views are inflated from their layouts instead of being
+     * built in code.
+     *
+     * @see #setInflateDefaultTabViews(boolean)
+     */
+    boolean inflateDefaultTabViews;
+
+    // Tab labels laid out on a background thread, see setTabTextPrecomputed()
+    private boolean precomputeTabText;
+    @Nullable private Executor tabTextPrecomputeExecutor;
+    // Used when no executor is set, created on the main thread on first use
+    @Nullable private static Executor defaultTabTextPrecomputeExecutor;
+    // Metrics of the default tab text view, labels are precomputed with them
+    @Nullable PrecomputedTextCompat.Params tabTextMetricsParams;
 
     /**
      * Indicator width ratio
      */
     private float tabIndicatorWidthRatio = DEFAULT_INDICATOR_WIDTH_RATIO;
-    private final int requestedTabMinWidth;
-    private final int requestedTabMaxWidth;
-    private final int scrollableTabMinWidth;
+    private int requestedTabMinWidth;
+    private int requestedTabMaxWidth;
+    private int scrollableTabMinWidth;
 
     private int contentInsetStart;
 
     int tabGravity;
+    // Set when GRAVITY_CENTER or MODE_AUTO tabs do not fit and are laid out as GRAVITY_FILL
+    boolean tabGravityFillFallback;
     int tabIndicatorAnimationDuration;
     @TabIndicatorGravity int tabIndicatorGravity;
     @Mode int mode;
     boolean inlineLabel;
     boolean tabIndicatorFullWidth;
+    boolean tabIndicatorLayered;
 
     @Nullable private BaseOnTabSelectedListener selectedListener;
 
@@ -359,25 +436,52 @@ public class NiftyTabLayout extends HorizontalScrollView {
     private AdapterChangeListener adapterChangeListener;
     private boolean setupViewPagerImplicitly;
 
-    // Pool we use as a simple RecyclerBin
-    private final Pools.Pool<TabView> tabViewPool = new Pools.SimplePool<>(12);
+    // Recycled TabViews live in TabPools, shared with the other layouts using the same context
+    @Nullable private TabViewPrewarmer tabViewPrewarmer;
 
-    public static final TimeInterpolator FAST_OUT_SLOW_IN_INTERPOLATOR = new FastOutSlowInInterpolator();
+    // Badge numbers by tab position, written from any thread and applied on the main thread, see
+    // setBadgeNumbers()
+    @NonNull private final BadgeSlots pendingBadgeNumbers = new BadgeSlots(INITIAL_BADGE_SLOTS);
+    // Posts from any thread, View.post() drops posts from other threads while detached below API 24
+    @NonNull private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    @NonNull
+    private final Runnable badgeUpdateRunnable =
+            new Runnable() {
+                @Override
+                public void run() {
+                    applyPendingBadgeNumbers();
+                }
+            };
+    @NonNull
+    private final BadgeSlots.Sink badgeNumberSink =
+            new BadgeSlots.Sink() {
+                @Override
+                public void onBadgeNumber(int position, int number) {
+                    applyBadgeNumber(position, number);
+                }
+            };
+    private boolean drawOnlyBadgeChanged;
+
+    // Tab transactions, see beginTabTransaction()
+    private int tabTransactionDepth;
+    private boolean tabPositionsDirty;
+    private boolean tabTransactionSelects;
+    @Nullable private Tab tabTransactionSelection;
+    // Tabs removed during the transaction, pooled on commit so newTab() can't hand them out again
+    // while the selection may still refer to them
+    @NonNull private final ArrayList<Tab> tabTransactionRemovedTabs = new ArrayList<>();
 
-    /**
-     * tab text color evaluator
-     */
-    private TypeEvaluator textColorEvaluator = new ArgbEvaluator();
+    public static final TimeInterpolator FAST_OUT_SLOW_IN_INTERPOLATOR = new FastOutSlowInInterpolator();
 
     /**
-     * tab icon color evaluator
+     * tab text color interpolator
      */
-    private TypeEvaluator iconColorEvaluator = new ArgbEvaluator();
+    @NonNull private final TabInterpolator textColorInterpolator;
 
     /**
-     * text size evaluator
+     * tab icon color interpolator
      */
-    private TypeEvaluator textSizeEvaluator = new FloatEvaluator();
+    @NonNull private final TabInterpolator iconColorInterpolator;
 
 
     public NiftyTabLayout(@NonNull Context context) {
@@ -405,97 +509,105 @@ public class NiftyTabLayout extends HorizontalScrollView {
                 new HorizontalScrollView.LayoutParams(
                         LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT));
 
-        TypedArray a =  context.obtainStyledAttributes(attrs,
-                R.styleable.LTTabLayout,
-                defStyleAttr,
-                R.style.LTWidget_TabLayout);
-
-
-        slidingTabIndicator.setSelectedIndicatorHeight(
-                a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabIndicatorHeight, -1));
-        slidingTabIndicator.setSelectedIndicatorColor(
-                a.getColor(R.styleable.LTTabLayout_ltTabIndicatorColor, 0));
-        setSelectedTabIndicator(
-                TabUtils.getDrawable(context, a, R.styleable.LTTabLayout_ltTabIndicator));
-        setSelectedTabIndicatorGravity(
-                a.getInt(R.styleable.LTTabLayout_ltTabIndicatorGravity, INDICATOR_GRAVITY_BOTTOM));
-        setTabIndicatorFullWidth(a.getBoolean(R.styleable.LTTabLayout_ltTabIndicatorFullWidth, false));
-
-        tabPaddingStart =
-                tabPaddingTop =
-                        tabPaddingEnd =
-                                tabPaddingBottom = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabPadding, 0);
-        tabPaddingStart =
-                a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabPaddingStart, tabPaddingStart);
-        tabPaddingTop = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabPaddingTop, tabPaddingTop);
-        tabPaddingEnd = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabPaddingEnd, tabPaddingEnd);
-        tabPaddingBottom =
-                a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabPaddingBottom, tabPaddingBottom);
-
-        tabTextAppearance =
-                a.getResourceId(R.styleable.LTTabLayout_ltTabTextAppearance, R.style.LTWidget_TabLayout_Tab);
-
-        // Text colors/sizes come from the text appearance first
-        final TypedArray ta =
-                context.obtainStyledAttributes(
-                        tabTextAppearance, androidx.appcompat.R.styleable.TextAppearance);
-        try {
-            tabTextSize =
-                    ta.getDimensionPixelSize(
-                            androidx.appcompat.R.styleable.TextAppearance_android_textSize, 0);
-            tabTextColors =
-                    TabUtils.getColorStateList(
-                            context,
-                            ta,
-                            androidx.appcompat.R.styleable.TextAppearance_android_textColor);
-        } finally {
-            ta.recycle();
-        }
-
-        if (a.hasValue(R.styleable.LTTabLayout_ltTabTextColor)) {
-            // If we have an explicit text color set, use it instead
-            tabTextColors =
-                    TabUtils.getColorStateList(context, a, R.styleable.LTTabLayout_ltTabTextColor);
-        }
-
-        tabIndicatorAnimationDuration =
-                a.getInt(R.styleable.LTTabLayout_ltTabIndicatorAnimationDuration, ANIMATION_DURATION);
-
-        tabIndicatorWidthRatio = a.getFloat(R.styleable.LTTabLayout_ltTabIndicatorWidthRatio,DEFAULT_INDICATOR_WIDTH_RATIO);
-
-        requestedTabMinWidth =
-                a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabMinWidth, INVALID_WIDTH);
-        requestedTabMaxWidth =
-                a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabMaxWidth, INVALID_WIDTH);
-
-        iconTabHeight = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltIconTabHeight,0);
-        tabBackgroundResId = a.getResourceId(R.styleable.LTTabLayout_ltTabBackground, 0);
-        contentInsetStart = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabContentStart, 0);
-        // noinspection WrongConstant
-        mode = a.getInt(R.styleable.LTTabLayout_ltTabMode, MODE_AUTO);
-        tabGravity = a.getInt(R.styleable.LTTabLayout_ltTabGravity, GRAVITY_FILL);
-        inlineLabel = a.getBoolean(R.styleable.LTTabLayout_ltTabInlineLabel, false);
-        isSelectedTextBold = a.getBoolean(R.styleable.LTTabLayout_isSelectedTextBold,true);
-
-        selectedTextRadio = a.getFloat(R.styleable.LTTabLayout_selectedTabTextRadio,1f);
-        unSelectedTextRadio = a.getFloat(R.styleable.LTTabLayout_unSelectedTabTextRadio,0.8f);
+        style = TabLayoutStyle.obtain(context, attrs, defStyleAttr, R.style.LTWidget_TabLayout);
+        applyStyleValues(style);
 
-        selectedTextColor = a.getColor(R.styleable.LTTabLayout_selectedTabTextColor, ContextCompat.getColor(getContext(), R.color.comm_text_h1_color));
-        unSelectedTextColor = a.getColor(R.styleable.LTTabLayout_unSelectedTabTextColor, ContextCompat.getColor(getContext(), R.color.comm_text_h2_color));
+        textColorInterpolator =
+                new TabInterpolator(unSelectedTextColor, selectedTextColor, DEFAULT_ENABLE_COLOR_LOOKUP_TABLE);
+        iconColorInterpolator =
+                new TabInterpolator(unSelectedIconColor, selectedIconColor, DEFAULT_ENABLE_COLOR_LOOKUP_TABLE);
 
-        selectedIconColor = a.getColor(R.styleable.LTTabLayout_selectedIconTabColor, Color.TRANSPARENT);
-        unSelectedIconColor = a.getColor(R.styleable.LTTabLayout_unSelectedIconTabColor, ContextCompat.getColor(getContext(), R.color.comm_text_h2_color));
-        enableTintIndicator = a.getBoolean(R.styleable.LTTabLayout_ltEnableTintIndicator,DEFAULT_ENABLE_TINT_INDICATOR);
+        // Now apply the tab mode and gravity
+        applyModeAndGravity();
+    }
 
-        a.recycle();
+    /** Copies the values of {@code style} into the fields, callers invalidate and lay out once. */
+    private void applyStyleValues(@NonNull TabLayoutStyle style) {
+        slidingTabIndicator.selectedIndicatorHeight = style.indicatorHeight;
+        slidingTabIndicator.selectedIndicatorPaint.setColor(style.indicatorColor);
+        tabSelectedIndicator = style.newIndicator(getResources());
+        slidingTabIndicator.selectedIndicatorTinted = false;
+        tabIndicatorGravity = style.indicatorGravity;
+        tabIndicatorFullWidth = style.indicatorFullWidth;
+        tabIndicatorLayered = style.indicatorLayered;
+
+        tabPaddingStart = style.paddingStart;
+        tabPaddingTop = style.paddingTop;
+        tabPaddingEnd = style.paddingEnd;
+        tabPaddingBottom = style.paddingBottom;
+
+        tabTextAppearance = style.textAppearance;
+        tabTextSize = style.textSize;
+        tabTextMultiLineSize = style.textMultiLineSize;
+        tabTextColors = style.textColors;
+
+        tabIndicatorAnimationDuration = style.indicatorAnimationDuration;
+        tabIndicatorWidthRatio = style.indicatorWidthRatio;
+        enableTintIndicator = style.tintIndicator;
+
+        requestedTabMinWidth = style.minWidth;
+        requestedTabMaxWidth = style.maxWidth;
+        scrollableTabMinWidth = style.scrollableMinWidth;
+        iconTabHeight = style.iconTabHeight;
+        tabBackgroundResId = style.backgroundResId;
+        contentInsetStart = style.contentInsetStart;
+        // noinspection WrongConstant
+        mode = style.mode;
+        tabGravity = style.gravity;
+        inlineLabel = style.inlineLabel;
+
+        isSelectedTextBold = style.selectedTextBold;
+        selectedTextRadio = style.selectedTextRatio;
+        unSelectedTextRadio = style.unselectedTextRatio;
+        selectedTextColor = style.selectedTextColor;
+        unSelectedTextColor = style.unselectedTextColor;
+        selectedIconColor = style.selectedIconColor;
+        unSelectedIconColor = style.unselectedIconColor;
+
+        virtualTabStrip = style.stripVirtualized;
+        drawOnlyTabs = style.drawOnly;
+        inflateDefaultTabViews = style.inflateDefaultViews;
+        precomputeTabText = style.precomputeText;
+    }
 
-        // TODO add attr for these
-        final Resources res = getResources();
-        tabTextMultiLineSize = res.getDimensionPixelSize(R.dimen.tab_text_size_2line);
-        scrollableTabMinWidth = res.getDimensionPixelSize(R.dimen.tab_scrollable_min_width);
+    /**
+     * Restyles this layout and its tabs in a single pass, e.g. with the style of a dark theme after
+     * the night mode changed. Every value set through the style's attributes is replaced, including
+     * the ones changed through setters since. The layout is measured and drawn again once.
+     *
+     * @see TabLayoutStyle#obtain(Context, int)
+     */
+    public void setStyle(@NonNull TabLayoutStyle style) {
+        if (this.style == style) {
+            return;
+        }
+        this.style = style;
+        applyStyleValues(style);
+        textColorInterpolator.setColors(unSelectedTextColor, selectedTextColor);
+        iconColorInterpolator.setColors(unSelectedIconColor, selectedIconColor);
+        tabTextMetricsParams = null;
 
-        // Now apply the tab mode and gravity
+        slidingTabIndicator.restyleTabViews();
+        for (int i = 0, z = tabs.size(); i < z; i++) {
+            final Tab tab = tabs.get(i);
+            if (tab.view != null) {
+                applyTabSelectionState(tab);
+            }
+        }
+        // Requests the one layout pass, the indicator is drawn again with it
         applyModeAndGravity();
+        ViewCompat.postInvalidateOnAnimation(slidingTabIndicator);
+    }
+
+    /**
+     * Returns the style this layout was created or last restyled with. Values changed through
+     * setters since are not reflected.
+     *
+     * @see #setStyle(TabLayoutStyle)
+     */
+    @NonNull
+    public TabLayoutStyle getStyle() {
+        return style;
     }
 
     /**
@@ -555,9 +667,11 @@ public class NiftyTabLayout extends HorizontalScrollView {
             boolean updateIndicatorPosition) {
 
         final int roundedPosition = Math.round(position + positionOffset);
-        if (roundedPosition < 0 || roundedPosition >= slidingTabIndicator.getChildCount()) {
+        if (roundedPosition < 0 || roundedPosition >= getTabCount()) {
             return;
         }
+        final TabLayoutMetrics metrics = this.metrics;
+        final long startNanos = metrics != null ? System.nanoTime() : 0L;
 
         // Set the indicator position, if enabled
         if (updateIndicatorPosition) {
@@ -571,11 +685,49 @@ public class NiftyTabLayout extends HorizontalScrollView {
         scrollTo(calculateScrollXForTab(position, positionOffset), 0);
 
         // Update the 'selected state' view as we scroll, if enabled
-
-        Log.d("xxcli","roundedPosition" + roundedPosition);
         if (updateSelectedText) {
             setSelectedTabView(roundedPosition);
         }
+
+        if (metrics != null) {
+            metrics.addFrame(System.nanoTime() - startNanos);
+            onMetricsFrame(positionOffset);
+        }
+    }
+
+    /**
+     * Register a listener which receives the time spent in the layout's scroll, indicator and
+     * measure code, aggregated per swipe, along with invalidation and pool statistics. Use it to
+     * tell whether swipe jank originates in the tabs or in the pages.
+     *
+     * <p>Without a listener no metrics are collected, so this can stay enabled in release builds.
+     *
+     * @param listener the listener to notify, or {@code null} to stop collecting metrics
+     * @see TabLayoutMetrics
+     */
+    public void setOnMetricsListener(@Nullable OnMetricsListener listener) {
+        metricsListener = listener;
+        if (listener == null) {
+            metrics = null;
+        } else if (metrics == null) {
+            metrics = new TabLayoutMetrics();
+        }
+        metricsSwipeActive = false;
+    }
+
+    private void onMetricsFrame(float positionOffset) {
+        if (positionOffset != 0f) {
+            metricsSwipeActive = true;
+        } else if (metricsSwipeActive) {
+            // The swipe settled
+            metricsSwipeActive = false;
+            final OnMetricsListener listener = metricsListener;
+            final TabLayoutMetrics metrics = this.metrics;
+            if (listener != null && metrics != null) {
+                listener.onMetrics(metrics);
+                metrics.reset();
+            }
+        }
     }
 
     /**
@@ -621,10 +773,124 @@ public class NiftyTabLayout extends HorizontalScrollView {
             throw new IllegalArgumentException("Tab belongs to a different TabLayout.");
         }
         configureTab(tab, position);
-        addTabView(tab);
+        addTabView(tab, position);
 
         if (setSelected) {
             tab.select();
+        } else if (tabTransactionDepth == 0) {
+            syncIndicatorWithSelectedTab();
+        }
+    }
+
+    /**
+     * Starts a batch of tab changes. Until the matching {@link #commitTabTransaction()}, tabs can be
+     * added, moved and removed without renumbering the tabs behind them, requesting a layout or
+     * notifying {@link OnTabSelectedListener}s each time. Use it to add or remove many tabs at once.
+     *
+     * <p>Selecting a tab during a transaction, directly or because the selected tab was removed,
+     * only takes effect when the transaction is committed, and only the last selection is
+     * dispatched. Until then {@link #getSelectedTabPosition()} returns the previous selection, or
+     * -1 if that tab was removed.
+     *
+     * <p>Transactions can be nested, changes are applied when the outermost one is committed.
+     *
+     * @see #commitTabTransaction()
+     */
+    public void beginTabTransaction() {
+        tabTransactionDepth++;
+    }
+
+    /**
+     * Applies the tab changes made since {@link #beginTabTransaction()}: positions are renumbered
+     * and a layout is requested once, then the pending selection, if any, is dispatched.
+     *
+     * @throws IllegalStateException if no transaction was started
+     */
+    public void commitTabTransaction() {
+        if (tabTransactionDepth == 0) {
+            throw new IllegalStateException("No tab transaction to commit.");
+        }
+        if (--tabTransactionDepth > 0) {
+            return;
+        }
+        ensureTabPositions();
+        slidingTabIndicator.requestLayout();
+        slidingTabIndicator.invalidate();
+
+        if (tabTransactionSelects) {
+            Tab tab = tabTransactionSelection;
+            tabTransactionSelects = false;
+            tabTransactionSelection = null;
+            if (tab != null && tab.parent != this) {
+                // The tab to select was removed later in the transaction
+                tab = tabs.isEmpty() ? null : tabs.get(0);
+            }
+            selectTab(tab);
+        } else {
+            syncIndicatorWithSelectedTab();
+        }
+
+        for (int i = 0, z = tabTransactionRemovedTabs.size(); i < z; i++) {
+            releaseFromTabPool(tabTransactionRemovedTabs.get(i));
+        }
+        tabTransactionRemovedTabs.clear();
+    }
+
+    /** Renumbers the tabs if a transaction changed them, before a position is read. */
+    void ensureTabPositions() {
+        if (tabPositionsDirty) {
+            tabPositionsDirty = false;
+            for (int i = 0, z = tabs.size(); i < z; i++) {
+                tabs.get(i).setPosition(i);
+            }
+        }
+    }
+
+    /**
+     * Moves the tab at {@code fromPosition} to {@code toPosition}, keeping its {@link Tab} and
+     * {@link TabView} instances and the selection.
+     *
+     * @param fromPosition Current position of the tab
+     * @param toPosition New position of the tab
+     */
+    void moveTab(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition) {
+            return;
+        }
+        final Tab tab = tabs.remove(fromPosition);
+        tabs.add(toPosition, tab);
+        if (tabTransactionDepth > 0) {
+            tabPositionsDirty = true;
+        } else {
+            for (int i = Math.min(fromPosition, toPosition), z = Math.max(fromPosition, toPosition); i <= z; i++) {
+                tabs.get(i).setPosition(i);
+            }
+        }
+
+        if (virtualTabStripActive) {
+            // Bound TabViews must stay sorted by position, let the next layout pass rebind this one
+            if (tab.view != null) {
+                removeTabViewFromStrip(tab.view);
+                unbindVirtualTabView(tab);
+            }
+            slidingTabIndicator.invalidateVirtualGeometry();
+        } else {
+            final View tabView = slidingTabIndicator.getChildAt(fromPosition);
+            removeTabViewFromStrip(tabView);
+            addTabViewToStrip(tabView, toPosition, tabView.getLayoutParams());
+        }
+        if (tabTransactionDepth == 0) {
+            syncIndicatorWithSelectedTab();
+        }
+    }
+
+    /**
+     * Moves the indicator back under the selected tab after tabs were added, moved or removed in
+     * front of it.
+     */
+    private void syncIndicatorWithSelectedTab() {
+        if (selectedTab != null && slidingTabIndicator.selectedPosition != selectedTab.getPosition()) {
+            slidingTabIndicator.setIndicatorPositionFromTabPosition(selectedTab.getPosition(), 0f);
         }
     }
 
@@ -745,11 +1011,20 @@ public class NiftyTabLayout extends HorizontalScrollView {
     }
 
     public Tab resetNewTab(Tab tab){
-        tab.view.textView.setTextColor(unSelectedTextColor);
-        tab.view.textView.setScaleX(unSelectedTextRadio);
-        tab.view.textView.setScaleY(unSelectedTextRadio);
-        tab.view.iconView.setScaleX(unSelectedTextRadio);
-        tab.view.iconView.setScaleY(unSelectedTextRadio);
+        final TabView tabView = tab.view;
+        if (tabView == null) {
+            // Not bound in the virtualized tab strip, the state is applied once it is bound
+            return tab;
+        }
+        if (tabView.textView != null) {
+            tabView.textView.setTextColor(unSelectedTextColor);
+            tabView.textView.setScaleX(unSelectedTextRadio);
+            tabView.textView.setScaleY(unSelectedTextRadio);
+        }
+        if (tabView.iconView != null) {
+            tabView.iconView.setScaleX(unSelectedTextRadio);
+            tabView.iconView.setScaleY(unSelectedTextRadio);
+        }
         return tab;
     }
 
@@ -765,7 +1040,10 @@ public class NiftyTabLayout extends HorizontalScrollView {
 
     // TODO(b/76413401): remove this method and just create the final field after the widget migration
     protected Tab createTabFromPool() {
-        Tab tab = tabPool.acquire();
+        Tab tab = TabPools.acquireTab();
+        if (metrics != null) {
+            metrics.addPoolAcquire(tab != null);
+        }
         if (tab == null) {
             tab = new Tab();
         }
@@ -774,7 +1052,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
 
     // TODO(b/76413401): remove this method and just create the final field after the widget migration
     protected boolean releaseFromTabPool(Tab tab) {
-        return tabPool.release(tab);
+        return TabPools.releaseTab(tab);
     }
 
     /**
@@ -822,42 +1100,72 @@ public class NiftyTabLayout extends HorizontalScrollView {
      * @param position Position of the tab to remove
      */
     public void removeTabAt(int position) {
-        final int selectedTabPosition = selectedTab != null ? selectedTab.getPosition() : 0;
+        removeTabAt(position, true);
+    }
+
+    /**
+     * Remove a tab from the layout.
+     *
+     * @param position Position of the tab to remove
+     * @param selectFallback Whether another tab is selected if the removed tab was selected. If
+     *     false, no tab is selected afterwards and no listener is notified.
+     */
+    void removeTabAt(int position, boolean selectFallback) {
+        // Compared by identity, reading positions would renumber the tabs during a transaction
+        final boolean removesSelectedTab =
+                selectedTab != null ? tabs.get(position) == selectedTab : position == 0;
         removeTabViewAt(position);
 
         final Tab removedTab = tabs.remove(position);
         if (removedTab != null) {
-            removedTab.reset();
-            releaseFromTabPool(removedTab);
+            if (!selectFallback && removedTab == selectedTab) {
+                selectedTab = null;
+            }
+            releaseRemovedTab(removedTab);
         }
 
-        final int newTabCount = tabs.size();
-        for (int i = position; i < newTabCount; i++) {
-            tabs.get(i).setPosition(i);
+        if (tabTransactionDepth > 0) {
+            tabPositionsDirty |= position < tabs.size();
+        } else {
+            final int newTabCount = tabs.size();
+            for (int i = position; i < newTabCount; i++) {
+                tabs.get(i).setPosition(i);
+            }
         }
 
-        if (selectedTabPosition == position) {
+        if (selectFallback && removesSelectedTab) {
             selectTab(tabs.isEmpty() ? null : tabs.get(Math.max(0, position - 1)));
+        } else if (tabTransactionDepth == 0) {
+            syncIndicatorWithSelectedTab();
         }
     }
 
     /** Remove all tabs from the action bar and deselect the current tab. */
     public void removeAllTabs() {
         // Remove all the views
-        for (int i = slidingTabIndicator.getChildCount() - 1; i >= 0; i--) {
+        final int viewCount = virtualTabStripActive ? tabs.size() : slidingTabIndicator.getChildCount();
+        for (int i = viewCount - 1; i >= 0; i--) {
             removeTabViewAt(i);
         }
 
         for (final Iterator<Tab> i = tabs.iterator(); i.hasNext(); ) {
             final Tab tab = i.next();
             i.remove();
-            tab.reset();
-            releaseFromTabPool(tab);
+            releaseRemovedTab(tab);
         }
 
         selectedTab = null;
     }
 
+    private void releaseRemovedTab(@NonNull Tab tab) {
+        tab.reset();
+        if (tabTransactionDepth > 0) {
+            tabTransactionRemovedTabs.add(tab);
+        } else {
+            releaseFromTabPool(tab);
+        }
+    }
+
     /**
      * Set the behavior mode for the Tabs in this layout. The valid input options are:
      *
@@ -978,6 +1286,36 @@ public class NiftyTabLayout extends HorizontalScrollView {
         return tabIndicatorFullWidth;
     }
 
+    /**
+     * Sets whether the selection indicator is drawn on its own layer. The layer is a view in the tab
+     * strip's overlay which follows the indicator through its translation, so scrolling the pager or
+     * animating the indicator moves the layer on the render thread instead of recording the tab
+     * strip and its tabs again on every frame.
+     *
+     * <p>The layer is drawn above the tabs, over any tab background or content the indicator
+     * overlaps, while the indicator is otherwise drawn below them. It is only used with {@link
+     * #INDICATOR_GRAVITY_BOTTOM} and {@link #INDICATOR_GRAVITY_TOP} and from API 18, other
+     * indicators are drawn below the tabs as before. Defaults to false.
+     *
+     * @attr ref com.litao.android.lib.R.styleable#LTTabLayout_ltTabIndicatorLayered
+     * @see #isTabIndicatorLayered()
+     */
+    public void setTabIndicatorLayered(boolean layered) {
+        if (tabIndicatorLayered != layered) {
+            tabIndicatorLayered = layered;
+            ViewCompat.postInvalidateOnAnimation(slidingTabIndicator);
+        }
+    }
+
+    /**
+     * Returns whether the selection indicator is drawn on its own layer where its gravity allows.
+     *
+     * @see #setTabIndicatorLayered(boolean)
+     */
+    public boolean isTabIndicatorLayered() {
+        return tabIndicatorLayered;
+    }
+
     /**
      * Set whether tab labels will be displayed inline with tab icons, or if they will be displayed
      * underneath tab icons.
@@ -1021,137 +1359,643 @@ public class NiftyTabLayout extends HorizontalScrollView {
         return inlineLabel;
     }
 
+    /**
+     * Set whether the tab strip is virtualized. A virtualized tab strip only keeps a {@link TabView}
+     * for the tabs in and near the viewport, and recycles the others, so that layouts with hundreds
+     * of tabs populate, measure and lay out in time proportional to the number of visible tabs.
+     *
+     * <p>Virtualization only applies to {@link #MODE_SCROLLABLE}, the other modes always fit all
+     * tabs on screen. While a tab is scrolled out of view its {@link Tab#view} is {@code null}; all
+     * {@link Tab} state, including its badge, is kept and applied again when it scrolls back in.
+     *
+     * @see #isTabStripVirtualized()
+     * @attr ref com.litao.android.lib.R.styleable#LTTabLayout_ltTabStripVirtualized
+     */
+    public void setTabStripVirtualized(boolean virtualized) {
+        if (virtualTabStrip != virtualized) {
+            virtualTabStrip = virtualized;
+            applyModeAndGravity();
+        }
+    }
 
     /**
-     * Sets the text colors for the different states (normal, selected) used for the tabs.
+     * Returns whether the tab strip is virtualized.
      *
-     * @see #getTabTextColors()
+     * @see #setTabStripVirtualized(boolean)
      */
-//    public void setTabTextColors(@Nullable ColorStateList textColor) {
-//        if (tabTextColors != textColor) {
-//            tabTextColors = textColor;
-//            updateAllTabs();
-//        }
-//    }
+    public boolean isTabStripVirtualized() {
+        return virtualTabStrip;
+    }
 
-    /** Gets the text colors for the different states (normal, selected) used for the tabs. */
-    @Nullable
-    public ColorStateList getTabTextColors() {
-        return tabTextColors;
+    /** Returns whether the tab strip currently only binds the tabs around the viewport. */
+    boolean isVirtualTabStripActive() {
+        return virtualTabStripActive;
     }
 
     /**
-     * Sets the text colors for the different states (normal, selected) used for the tabs.
+     * Set whether tabs are drawn directly by the tab strip. In draw-only mode a tab does not own a
+     * {@link TabView}: its icon, label and badge are drawn onto the tab strip's canvas, touches are
+     * mapped to tabs through the tab bounds, and accessibility exposes every tab as a virtual view.
+     * This keeps the view hierarchy flat no matter how many tabs there are.
      *
-     * @attr ref com.google.android.material.R.styleable#TabLayout_tabTextColor
-     * @attr ref com.google.android.material.R.styleable#TabLayout_tabSelectedTextColor
+     * <p>Draw-only mode implies a {@link #setTabStripVirtualized(boolean) virtualized} tab strip and
+     * like it only applies to {@link #MODE_SCROLLABLE}. Tabs with a {@link Tab#setCustomView(View)
+     * custom view} still get a TabView. Labels are drawn on a single line, and the tab background
+     * is not drawn.
+     *
+     * @see #isTabDrawOnly()
+     * @attr ref com.litao.android.lib.R.styleable#LTTabLayout_ltTabDrawOnly
      */
-    public void setTabTextColors(int normalColor, int selectedColor) {
-//        setTabTextColors(createColorStateList(normalColor, selectedColor));
-        this.selectedTextColor = selectedColor;
-        this.unSelectedTextColor = normalColor;
-//        updateAllTabs();
-        for (int i = 0, z = tabs.size(); i < z; i++) {
-            Tab tab = tabs.get(i);
-            if (tab.isSelected()){
-                tab.view.textView.setTextColor(selectedColor);
-            }else {
-                tab.view.textView.setTextColor(unSelectedTextColor);
-            }
+    public void setTabDrawOnly(boolean drawOnly) {
+        if (drawOnlyTabs != drawOnly) {
+            drawOnlyTabs = drawOnly;
+            applyModeAndGravity();
         }
     }
 
-
     /**
-     * Returns the selection indicator drawable for this TabLayout.
+     * Returns whether tabs are drawn directly by the tab strip.
      *
-     * @return The drawable used as the tab selection indicator, if set.
-     * @see #setSelectedTabIndicator(Drawable)
-     * @see #setSelectedTabIndicator(int)
+     * @see #setTabDrawOnly(boolean)
      */
-    @Nullable
-    public Drawable getTabSelectedIndicator() {
-        return tabSelectedIndicator;
+    public boolean isTabDrawOnly() {
+        return drawOnlyTabs;
     }
 
     /**
-     * Sets the selection indicator for this TabLayout. By default, this is a line along the bottom of
-     * the tab. If {@code tabIndicatorColor} is specified via the TabLayout's style or via {@link
-     * #setSelectedTabIndicatorColor(int)} the selection indicator will be tinted that color.
-     * Otherwise, it will use the colors specified in the drawable.
+     * Set whether the default icon and text view of a tab are inflated from {@code
+     * layout_tab_icon.xml} and {@code layout_tab_text.xml}. By default they are built in code with
+     * the same attributes, which avoids parsing and inflating two layouts per tab. Enable this if the
+     * app overrides those layouts. Only TabViews created afterwards are affected.
      *
-     * @param tabSelectedIndicator A drawable to use as the selected tab indicator.
-     * @see #setSelectedTabIndicatorColor(int)
-     * @see #setSelectedTabIndicator(int)
+     * @see #isInflateDefaultTabViews()
+     * @attr ref com.litao.android.lib.R.styleable#LTTabLayout_ltTabInflateDefaultViews
      */
-    public void setSelectedTabIndicator(@Nullable Drawable tabSelectedIndicator) {
-        if (this.tabSelectedIndicator != tabSelectedIndicator) {
-            this.tabSelectedIndicator = tabSelectedIndicator;
-            ViewCompat.postInvalidateOnAnimation(slidingTabIndicator);
-        }
+    public void setInflateDefaultTabViews(boolean inflate) {
+        inflateDefaultTabViews = inflate;
     }
 
     /**
-     * Sets the drawable resource to use as the selection indicator for this TabLayout. By default,
-     * this is a line along the bottom of the tab. If {@code tabIndicatorColor} is specified via the
-     * TabLayout's style or via {@link #setSelectedTabIndicatorColor(int)} the selection indicator
-     * will be tinted that color. Otherwise, it will use the colors specified in the drawable.
+     * Returns whether the default icon and text view of a tab are inflated from layouts.
      *
-     * @param tabSelectedIndicatorResourceId A drawable resource to use as the selected tab indicator.
-     * @see #setSelectedTabIndicatorColor(int)
-     * @see #setSelectedTabIndicator(Drawable)
+     * @see #setInflateDefaultTabViews(boolean)
      */
-    public void setSelectedTabIndicator(@DrawableRes int tabSelectedIndicatorResourceId) {
-        if (tabSelectedIndicatorResourceId != 0) {
-            setSelectedTabIndicator(
-                    AppCompatResources.getDrawable(getContext(), tabSelectedIndicatorResourceId));
-        } else {
-            setSelectedTabIndicator(null);
-        }
+    public boolean isInflateDefaultTabViews() {
+        return inflateDefaultTabViews;
     }
 
     /**
-     * The one-stop shop for setting up this {@link NiftyTabLayout} with a {@link ViewPager}.
-     *
-     * <p>This is the same as calling {@link #setupWithViewPager(ViewPager, boolean)} with
-     * auto-refresh enabled.
+     * Set whether tab labels are laid out on a background thread with {@link PrecomputedTextCompat}
+     * as soon as their text is set, so that a measure pass of a TabView only binds the result
+     * instead of laying the label out on the UI thread. A TabView measured before its label is done
+     * shows the plain text, and is laid out again with the result once it is done, the UI thread
+     * never waits for it. This helps with many or long labels, especially complex scripts. Only
+     * tabs whose text is set afterwards are affected, custom views are not.
      *
-     * @param viewPager the ViewPager to link to, or {@code null} to clear any previous link
+     * @see #setTabTextPrecomputeExecutor(Executor)
+     * @attr ref com.litao.android.lib.R.styleable#LTTabLayout_ltTabPrecomputeText
      */
-    public void setupWithViewPager(@Nullable ViewPager viewPager) {
-        setupWithViewPager(viewPager, false);
+    public void setTabTextPrecomputed(boolean precompute) {
+        precomputeTabText = precompute;
     }
 
     /**
-     * The one-stop shop for setting up this {@link NiftyTabLayout} with a {@link ViewPager}.
-     *
-     * <p>This method will link the given ViewPager and this TabLayout together so that changes in one
-     * are automatically reflected in the other. This includes scroll state changes and clicks. The
-     * tabs displayed in this layout will be populated from the ViewPager adapter's page titles.
-     *
-     * <p>If {@code autoRefresh} is {@code true}, any changes in the {@link PagerAdapter} will trigger
-     * this layout to re-populate itself from the adapter's titles.
+     * Returns whether tab labels are laid out on a background thread.
      *
-     * <p>If the given ViewPager is non-null, it needs to already have a {@link PagerAdapter} set.
+     * @see #setTabTextPrecomputed(boolean)
+     */
+    public boolean isTabTextPrecomputed() {
+        return precomputeTabText;
+    }
+
+    /**
+     * Set the executor tab labels are precomputed on, or null to use a single background thread
+     * shared by every layout.
      *
-     * @param viewPager the ViewPager to link to, or {@code null} to clear any previous link
-     * @param autoRefresh whether this layout should refresh its contents if the given ViewPager's
-     *     content changes
+     * @see #setTabTextPrecomputed(boolean)
      */
-    public void setupWithViewPager(@Nullable final ViewPager viewPager, boolean autoRefresh) {
-        setupWithViewPager(viewPager, autoRefresh, false);
+    public void setTabTextPrecomputeExecutor(@Nullable Executor executor) {
+        tabTextPrecomputeExecutor = executor;
     }
 
-    private void setupWithViewPager(
-            @Nullable final ViewPager viewPager, boolean autoRefresh, boolean implicitSetup) {
-        if (this.viewPager != null) {
-            // If we've already been setup with a ViewPager, remove us from it
-            if (pageChangeListener != null) {
-                this.viewPager.removeOnPageChangeListener(pageChangeListener);
-            }
-            if (adapterChangeListener != null) {
-                this.viewPager.removeOnAdapterChangeListener(adapterChangeListener);
-            }
+    /**
+     * Starts laying out the label of {@code tab} in the background, if enabled. Its TabView binds
+     * the result once it is done, see {@link TabView#onTextPrecomputed()}.
+     */
+    void precomputeTabText(@NonNull final Tab tab) {
+        final CharSequence text = tab.text;
+        if (!precomputeTabText || TextUtils.isEmpty(text) || tab.customView != null) {
+            tab.textFuture = null;
+            return;
+        }
+        if (tabTextPrecomputeExecutor == null && defaultTabTextPrecomputeExecutor == null) {
+            defaultTabTextPrecomputeExecutor =
+                    Executors.newSingleThreadExecutor(
+                            new ThreadFactory() {
+                                @Override
+                                public Thread newThread(@NonNull final Runnable runnable) {
+                                    final Thread thread =
+                                            new Thread(
+                                                    new Runnable() {
+                                                        @Override
+                                                        public void run() {
+                                                            Process.setThreadPriority(
+                                                                    Process.THREAD_PRIORITY_BACKGROUND);
+                                                            runnable.run();
+                                                        }
+                                                    },
+                                                    "NiftyTabLayout-precompute");
+                                    // Never keeps the process alive
+                                    thread.setDaemon(true);
+                                    return thread;
+                                }
+                            });
+        }
+        final Executor executor =
+                tabTextPrecomputeExecutor != null
+                        ? tabTextPrecomputeExecutor
+                        : defaultTabTextPrecomputeExecutor;
+        final Runnable onDone =
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        if (tab.parent == NiftyTabLayout.this && tab.view != null) {
+                            tab.view.onTextPrecomputed();
+                        }
+                    }
+                };
+        tab.textFuture =
+                PrecomputedTextCompat.getTextFuture(
+                        text,
+                        getTabTextMetricsParams(),
+                        new Executor() {
+                            @Override
+                            public void execute(@NonNull final Runnable task) {
+                                executor.execute(
+                                        new Runnable() {
+                                            @Override
+                                            public void run() {
+                                                task.run();
+                                                // Back on the main thread to bind the result,
+                                                // also while the layout is not attached yet
+                                                mainHandler.post(onDone);
+                                            }
+                                        });
+                            }
+                        });
+    }
+
+    @NonNull
+    private PrecomputedTextCompat.Params getTabTextMetricsParams() {
+        if (tabTextMetricsParams == null) {
+            // Without a tab, update() only creates and styles the default text view
+            final TabView tabView = new TabView(this);
+            tabView.update();
+            tabTextMetricsParams = TextViewCompat.getTextMetricsParams(tabView.textView);
+            recycleTabView(tabView);
+        }
+        return tabTextMetricsParams;
+    }
+
+    /**
+     * Builds up to {@code count} TabViews ahead of time, including their default icon and text
+     * views, and keeps them in the recycled TabView pool so that the following {@link #addTab(Tab)}
+     * calls don't inflate anything. The pool of this layout's context grows to hold {@code count}
+     * TabViews if needed, see {@link TabPools}, and is limited again once pre-warming finished.
+     *
+     * <p>TabViews are views and are built on the main thread, a few at a time whenever its message
+     * queue is idle, so pre-warming does not delay the frames in between. Call this as early as
+     * possible, e.g. right after the layout is inflated, and before the tabs are added. Tabs added
+     * before pre-warming finished simply take what is in the pool already. Pre-warming stops when
+     * the layout is detached from its window.
+     *
+     * <p>Pre-warmed TabViews use the tab style current at the time they are built, so set the style
+     * first.
+     *
+     * @param count the number of TabViews the pool should hold
+     * @throws IllegalStateException if not called on the main thread
+     * @see #cancelTabViewPrewarm()
+     */
+    @MainThread
+    public void prewarmTabViews(int count) {
+        checkMainThread("prewarmTabViews");
+        final int missing = count - TabPools.getPooledTabViewCount(getContext());
+        if (missing <= 0) {
+            return;
+        }
+        if (tabViewPrewarmer == null) {
+            tabViewPrewarmer = new TabViewPrewarmer();
+            Looper.myQueue().addIdleHandler(tabViewPrewarmer);
+            TabPools.beginTabViewPrewarm(getContext());
+        }
+        TabPools.ensureTabViewCapacity(getContext(), count);
+        tabViewPrewarmer.remaining = Math.max(tabViewPrewarmer.remaining, missing);
+    }
+
+    /**
+     * Stops building TabViews ahead of time. TabViews which are already pooled are kept.
+     *
+     * @throws IllegalStateException if not called on the main thread
+     * @see #prewarmTabViews(int)
+     */
+    @MainThread
+    public void cancelTabViewPrewarm() {
+        checkMainThread("cancelTabViewPrewarm");
+        if (tabViewPrewarmer != null) {
+            Looper.myQueue().removeIdleHandler(tabViewPrewarmer);
+            tabViewPrewarmer = null;
+            TabPools.endTabViewPrewarm(getContext());
+        }
+    }
+
+    // The pre-warmer is an idle handler of the calling thread's queue, which has to be the main one
+    private static void checkMainThread(@NonNull String method) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            throw new IllegalStateException(method + "() must be called on the main thread.");
+        }
+    }
+
+    /** Builds one TabView into the pool, returns false if the pool is full. */
+    private boolean prewarmTabView() {
+        if (!TabPools.hasTabViewCapacity(getContext())) {
+            return false;
+        }
+        final TabView tabView = new TabView(this);
+        // Without a tab, update() only inflates and styles the default icon and text views
+        tabView.update();
+        recycleTabView(tabView);
+        return true;
+    }
+
+    /** Builds pooled TabViews a few at a time while the main thread is idle. */
+    private final class TabViewPrewarmer implements MessageQueue.IdleHandler {
+        int remaining;
+
+        @Override
+        public boolean queueIdle() {
+            if (tabViewPrewarmer != this) {
+                return false;
+            }
+            for (int i = 0; i < PREWARM_TAB_VIEWS_PER_IDLE && remaining > 0; i++) {
+                if (!prewarmTabView()) {
+                    remaining = 0;
+                    break;
+                }
+                remaining--;
+            }
+            if (remaining > 0) {
+                return true;
+            }
+            tabViewPrewarmer = null;
+            TabPools.endTabViewPrewarm(getContext());
+            return false;
+        }
+    }
+
+    /**
+     * Sets the badge number of the tab at {@code position}. Can be called from any thread, the
+     * number is applied on the main thread together with the other numbers set in between, and only
+     * if the badge doesn't show it already. Tabs without a badge get one.
+     *
+     * <p>Each position keeps the last number set, so a burst of updates, e.g. unread counters after
+     * a reconnect, posts a single message to the main thread. Positions are resolved when the
+     * numbers are applied, positions which are out of range by then are ignored. A negative number
+     * shows a badge without number.
+     *
+     * @throws IllegalArgumentException if {@code position} is negative
+     */
+    public void setBadgeNumber(int position, int number) {
+        if (pendingBadgeNumbers.put(position, number)) {
+            scheduleBadgeUpdate();
+        }
+    }
+
+    /**
+     * Sets the badge numbers of several tabs at once. Can be called from any thread.
+     *
+     * @param positions the positions of the tabs
+     * @param numbers the badge number of the tab at the same index in {@code positions}
+     * @throws IllegalArgumentException if the arrays differ in length or a position is negative
+     * @see #setBadgeNumber(int, int)
+     */
+    public void setBadgeNumbers(@NonNull int[] positions, @NonNull int[] numbers) {
+        if (positions.length != numbers.length) {
+            throw new IllegalArgumentException("positions and numbers differ in length");
+        }
+        boolean schedule = false;
+        for (int i = 0; i < positions.length; i++) {
+            schedule |= pendingBadgeNumbers.put(positions[i], numbers[i]);
+        }
+        if (schedule) {
+            scheduleBadgeUpdate();
+        }
+    }
+
+    /**
+     * Sets the badge numbers of several tabs at once, keyed by tab position. Can be called from any
+     * thread, as long as {@code numbers} isn't modified concurrently.
+     *
+     * @see #setBadgeNumber(int, int)
+     */
+    public void setBadgeNumbers(@NonNull SparseIntArray numbers) {
+        boolean schedule = false;
+        for (int i = 0, z = numbers.size(); i < z; i++) {
+            schedule |= pendingBadgeNumbers.put(numbers.keyAt(i), numbers.valueAt(i));
+        }
+        if (schedule) {
+            scheduleBadgeUpdate();
+        }
+    }
+
+    private void scheduleBadgeUpdate() {
+        mainHandler.post(badgeUpdateRunnable);
+    }
+
+    /** Applies the badge numbers set since they were last applied. Main thread only. */
+    void applyPendingBadgeNumbers() {
+        drawOnlyBadgeChanged = false;
+        pendingBadgeNumbers.drain(badgeNumberSink);
+        if (drawOnlyBadgeChanged && drawOnlyTabsActive) {
+            // Badges of draw-only tabs only get a callback once drawn, redraw the strip once for all
+            slidingTabIndicator.invalidate();
+        }
+    }
+
+    private void applyBadgeNumber(int position, int number) {
+        final Tab tab = getTabAt(position);
+        if (tab == null) {
+            return;
+        }
+        final BadgeDrawable current = tab.getBadge();
+        if (current != null
+                && (number < 0
+                        ? !current.hasNumber()
+                        : current.hasNumber() && current.getNumber() == number)) {
+            return;
+        }
+        // Updates the bounds and invalidates the badge once
+        final BadgeDrawable badge = tab.getOrCreateBadge();
+        if (number < 0) {
+            badge.clearNumber();
+        } else {
+            badge.setNumber(number);
+        }
+        drawOnlyBadgeChanged |= tab.view == null;
+    }
+
+    /**
+     * Switches the tab strip between binding a TabView to every tab and binding TabViews around the
+     * viewport only, after the mode or the virtualization flag changed.
+     */
+    private void updateVirtualTabStrip() {
+        final boolean active = (virtualTabStrip || drawOnlyTabs) && mode == MODE_SCROLLABLE;
+        final boolean drawOnly = active && drawOnlyTabs;
+        if (drawOnly != drawOnlyTabsActive) {
+            drawOnlyTabsActive = drawOnly;
+            slidingTabIndicator.onDrawOnlyChanged();
+        }
+        if (active == virtualTabStripActive) {
+            return;
+        }
+
+        // Release all bound TabViews first
+        for (int i = slidingTabIndicator.getChildCount() - 1; i >= 0; i--) {
+            final TabView tabView = (TabView) slidingTabIndicator.getChildAt(i);
+            slidingTabIndicator.removeViewAt(i);
+            final Tab tab = tabView.getTab();
+            if (tab != null) {
+                tab.view = null;
+            }
+            recycleTabView(tabView);
+        }
+        virtualTabStripActive = active;
+        slidingTabIndicator.geometry.clear();
+        slidingTabIndicator.invalidateVirtualTabWidths();
+
+        if (!active) {
+            // Every tab owns a TabView again
+            for (int i = 0, z = tabs.size(); i < z; i++) {
+                final Tab tab = tabs.get(i);
+                tab.view = createTabView(tab);
+                applyTabSelectionState(tab);
+                slidingTabIndicator.addView(tab.view, i, createLayoutParamsForTabs());
+            }
+        }
+        // Else TabViews are bound around the viewport during the next layout pass
+        slidingTabIndicator.requestLayout();
+    }
+
+    /** Binds a TabView to {@code tab} in the virtualized tab strip. */
+    @NonNull
+    private TabView bindVirtualTabView(@NonNull Tab tab) {
+        final TabView tabView = createTabView(tab);
+        tab.view = tabView;
+        applyTabSelectionState(tab);
+        return tabView;
+    }
+
+    /** Releases the TabView bound to {@code tab} in the virtualized tab strip. */
+    private void unbindVirtualTabView(@NonNull Tab tab) {
+        final TabView tabView = tab.view;
+        if (tabView != null) {
+            tab.view = null;
+            recycleTabView(tabView);
+        }
+    }
+
+    private void recycleTabView(@NonNull TabView tabView) {
+        tabView.recycle();
+        TabPools.releaseTabView(tabView);
+    }
+
+    /** Applies the selected or unselected color and scale to a freshly bound tab. */
+    private void applyTabSelectionState(@NonNull Tab tab) {
+        resetNewTab(tab);
+        if (tab.view != null && tab.isSelected()) {
+            tab.view.setSelected(true);
+            tab.view.setActivated(true);
+            tab.view.updateTabColor(1f);
+            tab.view.updateTabSize(1f);
+        }
+    }
+
+
+    /**
+     * Sets the text colors for the different states (normal, selected) used for the tabs.
+     *
+     * @see #getTabTextColors()
+     */
+//    public void setTabTextColors(@Nullable ColorStateList textColor) {
+//        if (tabTextColors != textColor) {
+//            tabTextColors = textColor;
+//            updateAllTabs();
+//        }
+//    }
+
+    /** Gets the text colors for the different states (normal, selected) used for the tabs. */
+    @Nullable
+    public ColorStateList getTabTextColors() {
+        return tabTextColors;
+    }
+
+    /**
+     * Sets the text colors for the different states (normal, selected) used for the tabs.
+     *
+     * @attr ref com.google.android.material.R.styleable#TabLayout_tabTextColor
+     * @attr ref com.google.android.material.R.styleable#TabLayout_tabSelectedTextColor
+     */
+    public void setTabTextColors(int normalColor, int selectedColor) {
+//        setTabTextColors(createColorStateList(normalColor, selectedColor));
+        this.selectedTextColor = selectedColor;
+        this.unSelectedTextColor = normalColor;
+        textColorInterpolator.setColors(normalColor, selectedColor);
+//        updateAllTabs();
+        for (int i = 0, z = tabs.size(); i < z; i++) {
+            Tab tab = tabs.get(i);
+            if (tab.view == null || tab.view.textView == null) {
+                continue;
+            }
+            if (tab.isSelected()){
+                tab.view.textView.setTextColor(selectedColor);
+            }else {
+                tab.view.textView.setTextColor(unSelectedTextColor);
+            }
+        }
+        if (drawOnlyTabsActive) {
+            slidingTabIndicator.invalidate();
+        }
+    }
+
+
+    /**
+     * Sets the scale ratios applied to the tab label and icon in the unselected and selected state.
+     * Tabs in between (while scrolling) are interpolated between the two values.
+     *
+     * @param normalRadio scale of unselected tabs
+     * @param selectedRadio scale of the selected tab
+     * @attr ref com.litao.android.lib.R.styleable#LTTabLayout_unSelectedTabTextRadio
+     * @attr ref com.litao.android.lib.R.styleable#LTTabLayout_selectedTabTextRadio
+     */
+    public void setTabTextRadio(float normalRadio, float selectedRadio) {
+        if (this.unSelectedTextRadio == normalRadio && this.selectedTextRadio == selectedRadio) {
+            return;
+        }
+        this.unSelectedTextRadio = normalRadio;
+        this.selectedTextRadio = selectedRadio;
+        for (int i = 0, z = tabs.size(); i < z; i++) {
+            Tab tab = tabs.get(i);
+            if (tab.view != null) {
+                tab.view.updateTabSize(tab.isSelected() ? 1f : 0f);
+            }
+        }
+        if (drawOnlyTabsActive) {
+            slidingTabIndicator.invalidate();
+        }
+    }
+
+    /**
+     * Whether the text and icon colors used while scrolling between tabs are read from a
+     * precomputed lookup table (the default) or blended on every frame. The table is only rebuilt
+     * when the colors change, e.g. through {@link #setTabTextColors(int, int)}. Without the table,
+     * scrolling allocates a text color per tab and frame.
+     */
+    public void setColorLookupTableEnabled(boolean enabled) {
+        textColorInterpolator.setLookupTableEnabled(enabled);
+        iconColorInterpolator.setLookupTableEnabled(enabled);
+    }
+
+    /**
+     * Returns the selection indicator drawable for this TabLayout.
+     *
+     * @return The drawable used as the tab selection indicator, if set.
+     * @see #setSelectedTabIndicator(Drawable)
+     * @see #setSelectedTabIndicator(int)
+     */
+    @Nullable
+    public Drawable getTabSelectedIndicator() {
+        return tabSelectedIndicator;
+    }
+
+    /**
+     * Sets the selection indicator for this TabLayout. By default, this is a line along the bottom of
+     * the tab. If {@code tabIndicatorColor} is specified via the TabLayout's style or via {@link
+     * #setSelectedTabIndicatorColor(int)} the selection indicator will be tinted that color.
+     * Otherwise, it will use the colors specified in the drawable.
+     *
+     * @param tabSelectedIndicator A drawable to use as the selected tab indicator.
+     * @see #setSelectedTabIndicatorColor(int)
+     * @see #setSelectedTabIndicator(int)
+     */
+    public void setSelectedTabIndicator(@Nullable Drawable tabSelectedIndicator) {
+        if (this.tabSelectedIndicator != tabSelectedIndicator) {
+            this.tabSelectedIndicator = tabSelectedIndicator;
+            // The new drawable is not tinted yet
+            slidingTabIndicator.selectedIndicatorTinted = false;
+            ViewCompat.postInvalidateOnAnimation(slidingTabIndicator);
+        }
+    }
+
+    /**
+     * Sets the drawable resource to use as the selection indicator for this TabLayout. By default,
+     * this is a line along the bottom of the tab. If {@code tabIndicatorColor} is specified via the
+     * TabLayout's style or via {@link #setSelectedTabIndicatorColor(int)} the selection indicator
+     * will be tinted that color. Otherwise, it will use the colors specified in the drawable.
+     *
+     * @param tabSelectedIndicatorResourceId A drawable resource to use as the selected tab indicator.
+     * @see #setSelectedTabIndicatorColor(int)
+     * @see #setSelectedTabIndicator(Drawable)
+     */
+    public void setSelectedTabIndicator(@DrawableRes int tabSelectedIndicatorResourceId) {
+        if (tabSelectedIndicatorResourceId != 0) {
+            setSelectedTabIndicator(
+                    AppCompatResources.getDrawable(getContext(), tabSelectedIndicatorResourceId));
+        } else {
+            setSelectedTabIndicator(null);
+        }
+    }
+
+    /**
+     * The one-stop shop for setting up this {@link NiftyTabLayout} with a {@link ViewPager}.
+     *
+     * <p>This is the same as calling {@link #setupWithViewPager(ViewPager, boolean)} with
+     * auto-refresh enabled.
+     *
+     * @param viewPager the ViewPager to link to, or {@code null} to clear any previous link
+     */
+    public void setupWithViewPager(@Nullable ViewPager viewPager) {
+        setupWithViewPager(viewPager, false);
+    }
+
+    /**
+     * The one-stop shop for setting up this {@link NiftyTabLayout} with a {@link ViewPager}.
+     *
+     * <p>This method will link the given ViewPager and this TabLayout together so that changes in one
+     * are automatically reflected in the other. This includes scroll state changes and clicks. The
+     * tabs displayed in this layout will be populated from the ViewPager adapter's page titles.
+     *
+     * <p>If {@code autoRefresh} is {@code true}, any changes in the {@link PagerAdapter} will trigger
+     * this layout to re-populate itself from the adapter's titles.
+     *
+     * <p>If the given ViewPager is non-null, it needs to already have a {@link PagerAdapter} set.
+     *
+     * @param viewPager the ViewPager to link to, or {@code null} to clear any previous link
+     * @param autoRefresh whether this layout should refresh its contents if the given ViewPager's
+     *     content changes
+     */
+    public void setupWithViewPager(@Nullable final ViewPager viewPager, boolean autoRefresh) {
+        setupWithViewPager(viewPager, autoRefresh, false);
+    }
+
+    private void setupWithViewPager(
+            @Nullable final ViewPager viewPager, boolean autoRefresh, boolean implicitSetup) {
+        if (this.viewPager != null) {
+            // If we've already been setup with a ViewPager, remove us from it
+            if (pageChangeListener != null) {
+                this.viewPager.removeOnPageChangeListener(pageChangeListener);
+            }
+            if (adapterChangeListener != null) {
+                this.viewPager.removeOnAdapterChangeListener(adapterChangeListener);
+            }
         }
 
         if (currentVpSelectedListener != null) {
@@ -1219,6 +2063,11 @@ public class NiftyTabLayout extends HorizontalScrollView {
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
+        if (pendingBadgeNumbers.isPending()) {
+            // Apply them before the first frame rather than after it
+            mainHandler.removeCallbacks(badgeUpdateRunnable);
+            applyPendingBadgeNumbers();
+        }
         if (viewPager == null) {
             // If we don't have a ViewPager already, check if our parent is a ViewPager to
             // setup with it automatically
@@ -1234,6 +2083,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        cancelTabViewPrewarm();
 
         if (setupViewPagerImplicitly) {
             // If we've been setup with a ViewPager implicitly, let's clear out any listeners, etc
@@ -1242,6 +2092,14 @@ public class NiftyTabLayout extends HorizontalScrollView {
         }
     }
 
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        if (virtualTabStripActive) {
+            slidingTabIndicator.onViewportChanged();
+        }
+    }
+
     private int getTabScrollRange() {
         return Math.max(
                 0, slidingTabIndicator.getWidth() - getWidth() - getPaddingLeft() - getPaddingRight());
@@ -1268,13 +2126,18 @@ public class NiftyTabLayout extends HorizontalScrollView {
     }
 
     void populateFromPagerAdapter() {
+        beginTabTransaction();
         removeAllTabs();
-
         if (pagerAdapter != null) {
             final int adapterCount = pagerAdapter.getCount();
             for (int i = 0; i < adapterCount; i++) {
                 addTab(newTab().setText(pagerAdapter.getPageTitle(i)), false);
             }
+        }
+        commitTabTransaction();
+
+        if (pagerAdapter != null) {
+            final int adapterCount = pagerAdapter.getCount();
 
             // Make sure we reflect the currently set ViewPager item
             if (viewPager != null && adapterCount > 0) {
@@ -1294,11 +2157,17 @@ public class NiftyTabLayout extends HorizontalScrollView {
 
     @NonNull
     private TabView createTabView(@NonNull final Tab tab) {
-        TabView tabView = tabViewPool != null ? tabViewPool.acquire() : null;
-        if (tabView == null) {
-            tabView = new TabView(getContext());
+        TabView tabView = TabPools.acquireTabView(getContext());
+        if (metrics != null) {
+            metrics.addPoolAcquire(tabView != null);
+        }
+        if (tabView != null) {
+            tabView.attach(this);
+        } else {
+            tabView = new TabView(this);
         }
         tabView.setTab(tab);
+        tabView.setOrientation(inlineLabel ? LinearLayout.HORIZONTAL : LinearLayout.VERTICAL);
         tabView.setFocusable(true);
         tabView.setMinimumWidth(getTabMinWidth());
         if (TextUtils.isEmpty(tab.contentDesc)) {
@@ -1314,16 +2183,47 @@ public class NiftyTabLayout extends HorizontalScrollView {
         tabs.add(position, tab);
 
         final int count = tabs.size();
+        // Grown here on the main thread, so that threads setting badge numbers rarely have to
+        pendingBadgeNumbers.ensureCapacity(count);
+        if (tabTransactionDepth > 0) {
+            tabPositionsDirty |= position < count - 1;
+            return;
+        }
         for (int i = position + 1; i < count; i++) {
             tabs.get(i).setPosition(i);
         }
     }
 
-    private void addTabView(@NonNull Tab tab) {
+    private void addTabView(@NonNull Tab tab, int position) {
         final TabView tabView = tab.view;
         tabView.setSelected(false);
         tabView.setActivated(false);
-        slidingTabIndicator.addView(tabView, tab.getPosition(), createLayoutParamsForTabs());
+        if (virtualTabStripActive) {
+            // The TabView goes back to the pool right away, so that populating many tabs reuses the
+            // same instance. Tabs around the viewport are bound again during layout.
+            unbindVirtualTabView(tab);
+            slidingTabIndicator.invalidateVirtualGeometry();
+            return;
+        }
+        addTabViewToStrip(tabView, position, createLayoutParamsForTabs());
+    }
+
+    /** Adds a TabView, without requesting a layout during a transaction. */
+    private void addTabViewToStrip(@NonNull View tabView, int index, @NonNull ViewGroup.LayoutParams params) {
+        if (tabTransactionDepth > 0) {
+            slidingTabIndicator.addViewWithoutLayout(tabView, index, params);
+        } else {
+            slidingTabIndicator.addView(tabView, index, params);
+        }
+    }
+
+    /** Removes a TabView, without requesting a layout during a transaction. */
+    private void removeTabViewFromStrip(@NonNull View tabView) {
+        if (tabTransactionDepth > 0) {
+            slidingTabIndicator.removeViewInLayout(tabView);
+        } else {
+            slidingTabIndicator.removeView(tabView);
+        }
     }
 
     @Override
@@ -1363,7 +2263,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
     }
 
     private void updateTabViewLayoutParams(@NonNull LinearLayout.LayoutParams lp) {
-        if (mode == MODE_FIXED && tabGravity == GRAVITY_FILL) {
+        if (mode == MODE_FIXED && (tabGravity == GRAVITY_FILL || tabGravityFillFallback)) {
             lp.width = 0;
             lp.weight = 1;
         } else {
@@ -1415,10 +2315,14 @@ public class NiftyTabLayout extends HorizontalScrollView {
         if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
             // If we don't have an unspecified width spec, use the given size to calculate
             // the max tab width
-            tabMaxWidth =
+            final int newTabMaxWidth =
                     requestedTabMaxWidth > 0
                             ? requestedTabMaxWidth
                             : (int) (specWidth - TabUtils.dpToPx(getContext(), TAB_MIN_WIDTH_MARGIN));
+            if (newTabMaxWidth != tabMaxWidth) {
+                tabMaxWidth = newTabMaxWidth;
+                slidingTabIndicator.invalidateVirtualTabWidths();
+            }
         }
 
         // Now super measure itself using the (possibly) modified height spec
@@ -1459,13 +2363,23 @@ public class NiftyTabLayout extends HorizontalScrollView {
     }
 
     private void removeTabViewAt(int position) {
+        if (virtualTabStripActive) {
+            final Tab tab = tabs.get(position);
+            if (tab.view != null) {
+                removeTabViewFromStrip(tab.view);
+                unbindVirtualTabView(tab);
+            }
+            slidingTabIndicator.invalidateVirtualGeometry();
+            return;
+        }
         final TabView view = (TabView) slidingTabIndicator.getChildAt(position);
-        slidingTabIndicator.removeViewAt(position);
         if (view != null) {
-            view.reset();
-            tabViewPool.release(view);
+            removeTabViewFromStrip(view);
+            recycleTabView(view);
+        }
+        if (tabTransactionDepth == 0) {
+            requestLayout();
         }
-        requestLayout();
     }
 
     private void animateToTab(int newPosition) {
@@ -1522,11 +2436,11 @@ public class NiftyTabLayout extends HorizontalScrollView {
      * @param position Position of the selected tab.
      */
     private void setSelectedTabView(int position) {
-        final int tabCount = slidingTabIndicator.getChildCount();
+        final int tabCount = getTabCount();
         if (position < tabCount) {
-            for (int i = 0; i < tabCount; i++) {
+            for (int i = 0, z = slidingTabIndicator.getChildCount(); i < z; i++) {
                 final View child = slidingTabIndicator.getChildAt(i);
-                boolean isChecked = i == position;
+                boolean isChecked = slidingTabIndicator.getChildTabPosition(i) == position;
                 child.setSelected(isChecked);
                 child.setActivated(isChecked);
                 if (child instanceof TabView) {
@@ -1536,6 +2450,9 @@ public class NiftyTabLayout extends HorizontalScrollView {
 //                    tempTab.textView.setScaleY(isChecked ? selectedTextRadio : unSelectedTextRadio);
                 }
             }
+            if (drawOnlyTabsActive) {
+                slidingTabIndicator.invalidate();
+            }
         }
     }
 
@@ -1558,6 +2475,12 @@ public class NiftyTabLayout extends HorizontalScrollView {
      * @see #selectTab(Tab)
      */
     public void selectTab(@Nullable final Tab tab, boolean updateIndicator) {
+        if (tabTransactionDepth > 0) {
+            // Dispatched once the transaction is committed
+            tabTransactionSelects = true;
+            tabTransactionSelection = tab;
+            return;
+        }
         final Tab currentTab = selectedTab;
 
         if (currentTab == tab) {
@@ -1611,16 +2534,12 @@ public class NiftyTabLayout extends HorizontalScrollView {
 
     private int calculateScrollXForTab(int position, float positionOffset) {
         if (mode == MODE_SCROLLABLE || mode == MODE_AUTO) {
-            final View selectedChild = slidingTabIndicator.getChildAt(position);
-            final View nextChild =
-                    position + 1 < slidingTabIndicator.getChildCount()
-                            ? slidingTabIndicator.getChildAt(position + 1)
-                            : null;
-            final int selectedWidth = selectedChild != null ? selectedChild.getWidth() : 0;
-            final int nextWidth = nextChild != null ? nextChild.getWidth() : 0;
+            final int selectedWidth = slidingTabIndicator.getTabWidth(position);
+            final int nextWidth = slidingTabIndicator.getTabWidth(position + 1);
 
             // base scroll amount: places center of tab in center of parent
-            int scrollBase = selectedChild.getLeft() + (selectedWidth / 2) - (getWidth() / 2);
+            int scrollBase =
+                    slidingTabIndicator.getTabLeft(position) + (selectedWidth / 2) - (getWidth() / 2);
             // offset amount: fraction of the distance between centers of tabs
             int scrollOffset = (int) ((selectedWidth + nextWidth) * 0.5f * positionOffset);
 
@@ -1639,6 +2558,8 @@ public class NiftyTabLayout extends HorizontalScrollView {
         }
         ViewCompat.setPaddingRelative(slidingTabIndicator, paddingStart, 0, 0, 0);
 
+        updateVirtualTabStrip();
+
         switch (mode) {
             case MODE_AUTO:
             case MODE_FIXED:
@@ -1649,10 +2570,13 @@ public class NiftyTabLayout extends HorizontalScrollView {
                 break;
         }
 
+        tabGravityFillFallback = false;
         updateTabViews(true);
     }
 
     void updateTabViews(final boolean requestLayout) {
+        slidingTabIndicator.invalidateVirtualTabWidths();
+        slidingTabIndicator.invalidateGravityDecision();
         for (int i = 0; i < slidingTabIndicator.getChildCount(); i++) {
             View child = slidingTabIndicator.getChildAt(i);
             child.setMinimumWidth(getTabMinWidth());
@@ -1676,6 +2600,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
 
         @Nullable private Object tag;
         @Nullable private Drawable icon;
+        @NonNull private final TabIconTint iconTint = new TabIconTint();
         @Nullable private CharSequence text;
         // This represents the content description that has been explicitly set on the Tab or TabItem
         // in XML or through #setContentDescription. If the content description is empty, text should
@@ -1684,11 +2609,32 @@ public class NiftyTabLayout extends HorizontalScrollView {
         private int position = INVALID_POSITION;
         @Nullable private View customView;
         private @LabelVisibility int labelVisibilityMode = TAB_LABEL_VISIBILITY_LABELED;
+        // Owned by the tab rather than the TabView, so it survives the TabView being recycled in the
+        // virtualized tab strip
+        @Nullable private BadgeDrawable badge;
+        // Stable id of the adapter item this tab represents, RecyclerView.NO_ID if unknown
+        long itemId = -1;
+
+        // Measured size, cached while the tab is not bound in the virtualized tab strip
+        int virtualWidth = -1;
+        int virtualContentWidth;
+        // Single line label drawn by the tab strip in draw-only mode, for labelWidth
+        @Nullable Layout labelLayout;
+        int labelWidth;
+        // The text as the TabView displays it, e.g. in upper case for textAllCaps, set when measured
+        @Nullable CharSequence labelText;
+
+        // Label being laid out in the background, see NiftyTabLayout.setTabTextPrecomputed()
+        @Nullable Future<PrecomputedTextCompat> textFuture;
 
         // TODO(b/76413401): make package private after the widget migration is finished
         @Nullable public NiftyTabLayout parent;
         // TODO(b/76413401): make package private after the widget migration is finished
-        @NonNull public TabView view;
+        /**
+         * The view of this tab. May be {@code null} while the tab is scrolled out of view in a
+         * {@link NiftyTabLayout#setTabStripVirtualized(boolean) virtualized} tab strip.
+         */
+        @Nullable public TabView view;
 
         // TODO(b/76413401): make package private constructor after the widget migration is finished
         public Tab() {
@@ -1756,8 +2702,9 @@ public class NiftyTabLayout extends HorizontalScrollView {
          */
         @NonNull
         public Tab setCustomView(@LayoutRes int resId) {
-            final LayoutInflater inflater = LayoutInflater.from(view.getContext());
-            return setCustomView(inflater.inflate(resId, view, false));
+            final ViewGroup root = view != null ? view : parent.slidingTabIndicator;
+            final LayoutInflater inflater = LayoutInflater.from(root.getContext());
+            return setCustomView(inflater.inflate(resId, root, false));
         }
 
         /**
@@ -1777,6 +2724,9 @@ public class NiftyTabLayout extends HorizontalScrollView {
          *     action bar.
          */
         public int getPosition() {
+            if (parent != null) {
+                parent.ensureTabPositions();
+            }
             return position;
         }
 
@@ -1803,16 +2753,11 @@ public class NiftyTabLayout extends HorizontalScrollView {
         @NonNull
         public Tab setIcon(@Nullable Drawable icon) {
             this.icon = icon;
+            iconTint.setSource(icon);
             if ((parent.tabGravity == GRAVITY_CENTER) || parent.mode == MODE_AUTO) {
                 parent.updateTabViews(true);
             }
             updateView();
-            if (BadgeUtils.USE_COMPAT_PARENT
-                    && view.hasBadgeDrawable()
-                    && view.badgeDrawable.isVisible()) {
-                // Invalidate the TabView if icon visibility has changed and a badge is displayed.
-                view.invalidate();
-            }
             return this;
         }
 
@@ -1839,13 +2784,16 @@ public class NiftyTabLayout extends HorizontalScrollView {
          */
         @NonNull
         public Tab setText(@Nullable CharSequence text) {
-            if (TextUtils.isEmpty(contentDesc) && !TextUtils.isEmpty(text)) {
+            if (view != null && TextUtils.isEmpty(contentDesc) && !TextUtils.isEmpty(text)) {
                 // If no content description has been set, use the text as the content description of the
                 // TabView. If the text is null, don't update the content description.
                 view.setContentDescription(text);
             }
 
             this.text = text;
+            if (parent != null) {
+                parent.precomputeTabText(this);
+            }
             updateView();
             return this;
         }
@@ -1873,7 +2821,16 @@ public class NiftyTabLayout extends HorizontalScrollView {
          */
         @NonNull
         public BadgeDrawable getOrCreateBadge() {
-            return view.getOrCreateBadge();
+            if (view != null) {
+                return view.getOrCreateBadge();
+            }
+            if (badge == null) {
+                if (parent == null) {
+                    throw new IllegalArgumentException("Tab not attached to a TabLayout");
+                }
+                badge = BadgeDrawable.create(parent.getContext());
+            }
+            return badge;
         }
 
         /**
@@ -1881,7 +2838,10 @@ public class NiftyTabLayout extends HorizontalScrollView {
          * visibility of the {@link BadgeDrawable} if you only want to hide it temporarily.
          */
         public void removeBadge() {
-            view.removeBadge();
+            if (view != null) {
+                view.removeBadge();
+            }
+            badge = null;
         }
 
         /**
@@ -1890,7 +2850,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
          */
         @Nullable
         public BadgeDrawable getBadge() {
-            return view.getBadge();
+            return badge;
         }
 
         /**
@@ -1913,12 +2873,6 @@ public class NiftyTabLayout extends HorizontalScrollView {
                 parent.updateTabViews(true);
             }
             this.updateView();
-            if (BadgeUtils.USE_COMPAT_PARENT
-                    && view.hasBadgeDrawable()
-                    && view.badgeDrawable.isVisible()) {
-                // Invalidate the TabView if label visibility has changed and a badge is displayed.
-                view.invalidate();
-            }
             return this;
         }
 
@@ -1947,7 +2901,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
             if (parent == null) {
                 throw new IllegalArgumentException("Tab not attached to a TabLayout");
             }
-            return parent.getSelectedTabPosition() == position;
+            return parent.getSelectedTabPosition() == getPosition();
         }
 
         /**
@@ -1994,12 +2948,20 @@ public class NiftyTabLayout extends HorizontalScrollView {
         public CharSequence getContentDescription() {
             // This returns the view's content description instead of contentDesc because if the title
             // is used as a replacement for the content description, contentDesc will be empty.
-            return (view == null) ? null : view.getContentDescription();
+            if (view == null) {
+                return TextUtils.isEmpty(contentDesc) ? text : contentDesc;
+            }
+            return view.getContentDescription();
         }
 
         void updateView() {
+            virtualWidth = -1;
+            labelLayout = null;
+            labelText = null;
             if (view != null) {
                 view.update();
+            } else if (parent != null && parent.virtualTabStripActive) {
+                parent.slidingTabIndicator.invalidateVirtualGeometry();
             }
         }
 
@@ -2008,20 +2970,31 @@ public class NiftyTabLayout extends HorizontalScrollView {
             view = null;
             tag = null;
             icon = null;
+            iconTint.setSource(null);
             text = null;
             contentDesc = null;
             position = INVALID_POSITION;
             customView = null;
+            badge = null;
+            itemId = -1;
+            virtualWidth = -1;
+            labelLayout = null;
+            labelText = null;
+            textFuture = null;
         }
     }
 
     /** A {@link LinearLayout} containing {@link Tab} instances for use with {@link NiftyTabLayout}. */
-    public final class TabView extends LinearLayout {
+    public static final class TabView extends LinearLayout {
+        // The layout this view belongs to, null while it is pooled in TabPools
+        private NiftyTabLayout owner;
         private Tab tab;
         private TextView textView;
         private ImageView iconView;
+        // The badge is drawn by the tab strip, anchored to badgeAnchorBounds, see drawTabViewBadges()
         @Nullable private View badgeAnchorView;
         @Nullable private BadgeDrawable badgeDrawable;
+        @NonNull private final Rect badgeAnchorBounds = new Rect();
 
         @Nullable private View customView;
         @Nullable private TextView customTextView;
@@ -2029,23 +3002,71 @@ public class NiftyTabLayout extends HorizontalScrollView {
         @Nullable private Drawable baseBackgroundDrawable;
 
         private int defaultMaxLines = 2;
-
-        public TabView(@NonNull Context context) {
-            super(context);
-            updateBackgroundDrawable(context);
-            ViewCompat.setPaddingRelative(
-                    this, tabPaddingStart, tabPaddingTop, tabPaddingEnd, tabPaddingBottom);
+        // Whether iconView and textView were inflated rather than built in code
+        private boolean defaultViewsInflated;
+        // Text appearance applied to textView, it only needs to be resolved once per view
+        private int appliedTextAppearance;
+        // Precomputed label to bind to textView on the next measure pass
+        @Nullable private Future<PrecomputedTextCompat> pendingTextFuture;
+
+        TabView(@NonNull NiftyTabLayout owner) {
+            super(owner.getContext());
+            this.owner = owner;
+            applyOwnerStyle();
             setGravity(Gravity.CENTER);
-            setOrientation(inlineLabel ? HORIZONTAL : VERTICAL);
             setClickable(true);
             ViewCompat.setPointerIcon(
                     this, PointerIconCompat.getSystemIcon(getContext(), PointerIconCompat.TYPE_HAND));
             ViewCompat.setAccessibilityDelegate(this, null);
         }
 
+        /** Adopts a TabView taken from {@link TabPools}, which may come from another layout. */
+        void attach(@NonNull NiftyTabLayout owner) {
+            this.owner = owner;
+            if ((iconView != null || textView != null)
+                    && defaultViewsInflated != owner.inflateDefaultTabViews) {
+                // Built the other way by the previous owner, update() builds them again
+                removeDefaultViews();
+            }
+            // The previous owner's text appearance may resolve to other values, or be restyled
+            appliedTextAppearance = 0;
+            applyOwnerStyle();
+            if (iconView != null) {
+                final ViewGroup.LayoutParams params = iconView.getLayoutParams();
+                params.height =
+                        owner.iconTabHeight != 0 ? owner.iconTabHeight : ViewGroup.LayoutParams.WRAP_CONTENT;
+                iconView.setLayoutParams(params);
+            }
+        }
+
+        private void applyOwnerStyle() {
+            updateBackgroundDrawable(getContext());
+            ViewCompat.setPaddingRelative(
+                    this, owner.tabPaddingStart, owner.tabPaddingTop, owner.tabPaddingEnd, owner.tabPaddingBottom);
+            setOrientation(owner.inlineLabel ? HORIZONTAL : VERTICAL);
+        }
+
+        /**
+         * Scrubs this view before it goes into {@link TabPools}: it keeps its default icon and text
+         * views but no tab, badge, custom view, drawable or reference to its layout.
+         */
+        void recycle() {
+            reset();
+            setActivated(false);
+            setContentDescription(null);
+            baseBackgroundDrawable = null;
+            owner = null;
+        }
+
+        /** Applies the owner's style again after {@link NiftyTabLayout#setStyle(TabLayoutStyle)}. */
+        void restyle() {
+            attach(owner);
+            update();
+        }
+
         private void updateBackgroundDrawable(Context context) {
-            if (tabBackgroundResId != 0) {
-                baseBackgroundDrawable = AppCompatResources.getDrawable(context, tabBackgroundResId);
+            if (owner.tabBackgroundResId != 0) {
+                baseBackgroundDrawable = AppCompatResources.getDrawable(context, owner.tabBackgroundResId);
                 if (baseBackgroundDrawable != null && baseBackgroundDrawable.isStateful()) {
                     baseBackgroundDrawable.setState(getDrawableState());
                 }
@@ -2058,7 +3079,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
             ((GradientDrawable) contentDrawable).setColor(Color.TRANSPARENT);
             background = contentDrawable;
             ViewCompat.setBackground(this, background);
-            NiftyTabLayout.this.invalidate();
+            owner.invalidate();
         }
 
         /**
@@ -2089,7 +3110,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
 
             if (changed) {
                 invalidate();
-                NiftyTabLayout.this.invalidate(); // Invalidate TabLayout, which draws mBaseBackgroundDrawable
+                owner.invalidate(); // Invalidate TabLayout, which draws mBaseBackgroundDrawable
             }
         }
 
@@ -2147,9 +3168,18 @@ public class NiftyTabLayout extends HorizontalScrollView {
 
         @Override
         public void onMeasure(final int origWidthMeasureSpec, final int origHeightMeasureSpec) {
+            final TabLayoutMetrics metrics = owner.metrics;
+            final long startNanos = metrics != null ? System.nanoTime() : 0L;
+            measureTab(origWidthMeasureSpec, origHeightMeasureSpec);
+            if (metrics != null) {
+                metrics.addTabMeasure(System.nanoTime() - startNanos);
+            }
+        }
+
+        private void measureTab(final int origWidthMeasureSpec, final int origHeightMeasureSpec) {
             final int specWidthSize = MeasureSpec.getSize(origWidthMeasureSpec);
             final int specWidthMode = MeasureSpec.getMode(origWidthMeasureSpec);
-            final int maxWidth = getTabMaxWidth();
+            final int maxWidth = owner.getTabMaxWidth();
 
             final int widthMeasureSpec;
             final int heightMeasureSpec = origHeightMeasureSpec;
@@ -2157,62 +3187,115 @@ public class NiftyTabLayout extends HorizontalScrollView {
             if (maxWidth > 0 && (specWidthMode == MeasureSpec.UNSPECIFIED || specWidthSize > maxWidth)) {
                 // If we have a max width and a given spec which is either unspecified or
                 // larger than the max width, update the width spec using the same mode
-                widthMeasureSpec = MeasureSpec.makeMeasureSpec(tabMaxWidth, MeasureSpec.AT_MOST);
+                widthMeasureSpec = MeasureSpec.makeMeasureSpec(owner.tabMaxWidth, MeasureSpec.AT_MOST);
             } else {
                 // Else, use the original width spec
                 widthMeasureSpec = origWidthMeasureSpec;
             }
 
+            // Settle the label's max lines before measuring, from its cached single line width, so
+            // that the label is laid out once instead of being measured again with new max lines
+            if (textView != null) {
+                updateTextMaxLines(widthMeasureSpec);
+                // Not done yet, the plain text is measured and onTextPrecomputed() binds it later
+                if (pendingTextFuture != null && pendingTextFuture.isDone()) {
+                    bindPrecomputedText();
+                }
+            }
+
             // Now lets measure
             super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        /** Lays the TabView out again to bind its precomputed label, which is done now. */
+        void onTextPrecomputed() {
+            if (pendingTextFuture != null && pendingTextFuture.isDone()) {
+                requestLayout();
+            }
+        }
+
+        /**
+         * Replaces the label with its precomputed layout, which must be done. The plain text is kept
+         * if the text view's metrics changed since the layout was started.
+         */
+        private void bindPrecomputedText() {
+            final Future<PrecomputedTextCompat> future = pendingTextFuture;
+            pendingTextFuture = null;
+            final PrecomputedTextCompat precomputedText;
+            try {
+                precomputedText = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                return;
+            }
+            if (precomputedText.getParams().equals(TextViewCompat.getTextMetricsParams(textView))) {
+                TextViewCompat.setPrecomputedText(textView, precomputedText);
+            } else {
+                // Started with stale metrics, let the next labels use the current ones
+                owner.tabTextMetricsParams = null;
+            }
+        }
+
+        private void updateTextMaxLines(final int widthMeasureSpec) {
+            final TextView textView = this.textView;
+            // The tab's text, the text view may hold a precomputed copy which the cache doesn't key.
+            // Measured as displayed, e.g. in upper case for textAllCaps.
+            final CharSequence label = tab != null ? tab.text : textView.getText();
+            final CharSequence text = label != null ? TabUtils.getTransformedText(textView, label) : null;
+            final TextPaint paint = textView.getPaint();
+            final float density = getResources().getDisplayMetrics().density;
+            final float textWidth =
+                    text != null ? TextMeasureCache.getTextWidth(text, paint, density) : 0f;
+            final int availableWidth =
+                    MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED
+                            ? Integer.MAX_VALUE
+                            : MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight();
 
             // We need to switch the text size based on whether the text is spanning 2 lines or not
-            if (textView != null) {
-                float textSize = tabTextSize;
-                int maxLines = defaultMaxLines;
-
-                if (iconView != null && iconView.getVisibility() == VISIBLE) {
-                    // If the icon view is being displayed, we limit the text to 1 line
-                    maxLines = 1;
-                } else if (textView != null && textView.getLineCount() > 1) {
-                    // Otherwise when we have text which wraps we reduce the text size
-                    textSize = tabTextMultiLineSize;
-                }
-
-                final float curTextSize = textView.getTextSize();
-                final int curLineCount = textView.getLineCount();
-                final int curMaxLines = TextViewCompat.getMaxLines(textView);
-
-                if (textSize != curTextSize || (curMaxLines >= 0 && maxLines != curMaxLines)) {
-                    // We've got a new text size and/or max lines...
-                    boolean updateTextView = true;
-
-                    if (mode == MODE_FIXED && textSize > curTextSize && curLineCount == 1) {
-                        // If we're in fixed mode, going up in text size and currently have 1 line
-                        // then it's very easy to get into an infinite recursion.
-                        // To combat that we check to see if the change in text size
-                        // will cause a line count change. If so, abort the size change and stick
-                        // to the smaller size.
-                        final Layout layout = textView.getLayout();
-                        if (layout == null
-                                || approximateLineWidth(layout, 0, textSize)
-                                > getMeasuredWidth() - getPaddingLeft() - getPaddingRight()) {
-                            updateTextView = false;
-                        }
-                    }
+            float textSize = owner.tabTextSize;
+            int maxLines = defaultMaxLines;
+
+            if (iconView != null && iconView.getVisibility() == VISIBLE) {
+                // If the icon view is being displayed, we limit the text to 1 line
+                maxLines = 1;
+            } else if (textWidth > availableWidth) {
+                // Otherwise when we have text which wraps we reduce the text size
+                textSize = owner.tabTextMultiLineSize;
+            }
 
-                    if (updateTextView) {
-//                        textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, textSize);
-                        textView.setMaxLines(maxLines);
-                        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            final float curTextSize = textView.getTextSize();
+            final int curMaxLines = TextViewCompat.getMaxLines(textView);
+
+            if (textSize != curTextSize || (curMaxLines >= 0 && maxLines != curMaxLines)) {
+                // We've got a new text size and/or max lines...
+                boolean updateTextView = true;
+
+                if (owner.mode == MODE_FIXED && textSize > curTextSize && textWidth <= availableWidth) {
+                    // If we're in fixed mode, going up in text size and currently have 1 line
+                    // then it's very easy to get into an infinite recursion.
+                    // To combat that we check to see if the change in text size
+                    // will cause a line count change. If so, abort the size change and stick
+                    // to the smaller size.
+                    if (curTextSize <= 0 || textWidth * (textSize / curTextSize) > availableWidth) {
+                        updateTextView = false;
                     }
                 }
+
+                if (updateTextView && maxLines != curMaxLines) {
+//                    textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, textSize);
+                    textView.setMaxLines(maxLines);
+                }
             }
         }
 
         void setTab(@Nullable final Tab tab) {
             if (tab != this.tab) {
+                // The badge belongs to the tab, hand it over when this view is rebound
+                tryRemoveBadgeFromAnchor();
                 this.tab = tab;
+                badgeDrawable = tab != null ? tab.badge : null;
                 update();
             }
         }
@@ -2234,6 +3317,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
                     addView(custom);
                 }
                 customView = custom;
+                pendingTextFuture = null;
                 if (this.textView != null) {
                     this.textView.setVisibility(GONE);
                 }
@@ -2260,29 +3344,25 @@ public class NiftyTabLayout extends HorizontalScrollView {
             if (customView == null) {
                 // If there isn't a custom view, we'll us our own in-built layouts
                 if (this.iconView == null) {
-                    inflateAndAddDefaultIconView();
+                    addDefaultIconView();
                 }
 
-                final Drawable icon =
-                        (tab != null && tab.getIcon() != null)
-                                ? DrawableCompat.wrap(tab.getIcon()).mutate()
-                                : null;
-                if (icon != null) {
-                    DrawableCompat.setTint(icon, unSelectedIconColor);
-                    DrawableCompat.setTintMode(icon, PorterDuff.Mode.SRC_ATOP);
+                if (tab != null) {
+                    tab.iconTint.setTint(owner.unSelectedIconColor);
                 }
 
                 if (this.textView == null) {
-                    inflateAndAddDefaultTextView();
+                    addDefaultTextView();
                     defaultMaxLines = TextViewCompat.getMaxLines(this.textView);
                 }
-                TextViewCompat.setTextAppearance(this.textView, tabTextAppearance);
-                this.textView.setTextColor(unSelectedTextColor);
+                if (appliedTextAppearance != owner.tabTextAppearance) {
+                    TextViewCompat.setTextAppearance(this.textView, owner.tabTextAppearance);
+                    appliedTextAppearance = owner.tabTextAppearance;
+                }
+                this.textView.setTextColor(owner.unSelectedTextColor);
                 updateTextAndIcon(this.textView, this.iconView);
 
                 tryUpdateBadgeAnchor();
-                addOnLayoutChangeListener(iconView);
-                addOnLayoutChangeListener(textView);
             } else {
                 // Else, we'll see if there is a TextView or ImageView present and update them
                 if (customTextView != null || customIconView != null) {
@@ -2299,47 +3379,78 @@ public class NiftyTabLayout extends HorizontalScrollView {
             setSelected(tab != null && tab.isSelected());
         }
 
-        private void inflateAndAddDefaultIconView() {
-            ViewGroup iconViewParent = this;
-            if (BadgeUtils.USE_COMPAT_PARENT) {
-                iconViewParent = createPreApi18BadgeAnchorRoot();
-                addView(iconViewParent, 0);
+        private void removeDefaultViews() {
+            if (iconView != null) {
+                removeView(iconView);
+                iconView = null;
+            }
+            if (textView != null) {
+                removeView(textView);
+                textView = null;
+                defaultMaxLines = 2;
+                appliedTextAppearance = 0;
+            }
+        }
+
+        private void addDefaultIconView() {
+            defaultViewsInflated = owner.inflateDefaultTabViews;
+            if (owner.inflateDefaultTabViews) {
+                this.iconView =
+                        (ImageView)
+                                LayoutInflater.from(getContext())
+                                        .inflate(R.layout.layout_tab_icon, this, false);
+            } else {
+                this.iconView = createDefaultIconView();
             }
-            this.iconView =
-                    (ImageView)
-                            LayoutInflater.from(getContext())
-                                    .inflate(R.layout.layout_tab_icon, iconViewParent, false);
             ViewGroup.LayoutParams params = iconView.getLayoutParams();
-            if (iconTabHeight != 0){
-                params.height = iconTabHeight;
+            if (owner.iconTabHeight != 0){
+                params.height = owner.iconTabHeight;
             }
-            iconViewParent.addView(iconView, 0);
+            addView(iconView, 0);
         }
 
-        private void inflateAndAddDefaultTextView() {
-            ViewGroup textViewParent = this;
-            if (BadgeUtils.USE_COMPAT_PARENT) {
-                textViewParent = createPreApi18BadgeAnchorRoot();
-                addView(textViewParent);
+        private void addDefaultTextView() {
+            defaultViewsInflated = owner.inflateDefaultTabViews;
+            if (owner.inflateDefaultTabViews) {
+                this.textView =
+                        (TextView)
+                                LayoutInflater.from(getContext())
+                                        .inflate(R.layout.layout_tab_text, this, false);
+            } else {
+                this.textView = createDefaultTextView();
             }
-            this.textView =
-                    (TextView)
-                            LayoutInflater.from(getContext())
-                                    .inflate(R.layout.layout_tab_text, textViewParent, false);
-            textViewParent.addView(textView);
+            addView(textView);
         }
 
+        /** Builds the equivalent of {@code R.layout.layout_tab_icon}. */
+        @NonNull
+        private ImageView createDefaultIconView() {
+            final ImageView iconView = new AppCompatImageView(getContext());
+            iconView.setLayoutParams(createDefaultChildLayoutParams());
+            iconView.setAdjustViewBounds(true);
+            iconView.setContentDescription(null);
+            iconView.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
+            return iconView;
+        }
+
+        /** Builds the equivalent of {@code R.layout.layout_tab_text}. */
+        @NonNull
+        private TextView createDefaultTextView() {
+            final TextView textView = new AppCompatTextView(getContext());
+            textView.setLayoutParams(createDefaultChildLayoutParams());
+            textView.setEllipsize(TextUtils.TruncateAt.END);
+            textView.setGravity(Gravity.CENTER);
+            textView.setMaxLines(2);
+            return textView;
+        }
 
         @NonNull
-        private FrameLayout createPreApi18BadgeAnchorRoot() {
-            FrameLayout frameLayout = new FrameLayout(getContext());
-            FrameLayout.LayoutParams layoutparams =
-                    new FrameLayout.LayoutParams(
-                            ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-            frameLayout.setLayoutParams(layoutparams);
-            return frameLayout;
+        private LinearLayout.LayoutParams createDefaultChildLayoutParams() {
+            return new LinearLayout.LayoutParams(
+                    ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
         }
 
+
         /**
          * Creates an instance of {@link BadgeDrawable} if none exists. Initializes (if needed) and
          * returns the associated instance of {@link BadgeDrawable}.
@@ -2352,6 +3463,9 @@ public class NiftyTabLayout extends HorizontalScrollView {
             if (badgeDrawable == null) {
                 badgeDrawable = BadgeDrawable.create(getContext());
             }
+            if (tab != null) {
+                tab.badge = badgeDrawable;
+            }
             tryUpdateBadgeAnchor();
             if (badgeDrawable == null) {
                 throw new IllegalStateException("Unable to create badge");
@@ -2369,30 +3483,9 @@ public class NiftyTabLayout extends HorizontalScrollView {
                 tryRemoveBadgeFromAnchor();
             }
             badgeDrawable = null;
-        }
-
-        private void addOnLayoutChangeListener(@Nullable final View view) {
-            if (view == null) {
-                return;
+            if (tab != null) {
+                tab.badge = null;
             }
-            view.addOnLayoutChangeListener(
-                    new OnLayoutChangeListener() {
-                        @Override
-                        public void onLayoutChange(
-                                View v,
-                                int left,
-                                int top,
-                                int right,
-                                int bottom,
-                                int oldLeft,
-                                int oldTop,
-                                int oldRight,
-                                int oldBottom) {
-                            if (view.getVisibility() == VISIBLE) {
-                                tryUpdateBadgeDrawableBounds(view);
-                            }
-                        }
-                    });
         }
 
         private void tryUpdateBadgeAnchor() {
@@ -2402,42 +3495,24 @@ public class NiftyTabLayout extends HorizontalScrollView {
             if (customView != null) {
                 // TODO(b/123406505): Support badging on custom tab views.
                 tryRemoveBadgeFromAnchor();
+            } else if (iconView != null && tab != null && tab.getIcon() != null) {
+                // Anchor badge to icon.
+                setBadgeAnchor(iconView);
+            } else if (textView != null
+                    && tab != null
+                    && tab.getTabLabelVisibility() == TAB_LABEL_VISIBILITY_LABELED) {
+                // Anchor badge to label.
+                setBadgeAnchor(textView);
             } else {
-                if (iconView != null && tab != null && tab.getIcon() != null) {
-                    if (badgeAnchorView != iconView) {
-                        tryRemoveBadgeFromAnchor();
-                        // Anchor badge to icon.
-                        tryAttachBadgeToAnchor(iconView);
-                    } else {
-                        tryUpdateBadgeDrawableBounds(iconView);
-                    }
-                } else if (textView != null
-                        && tab != null
-                        && tab.getTabLabelVisibility() == TAB_LABEL_VISIBILITY_LABELED) {
-                    if (badgeAnchorView != textView) {
-                        tryRemoveBadgeFromAnchor();
-                        // Anchor badge to label.
-                        tryAttachBadgeToAnchor(textView);
-                    } else {
-                        tryUpdateBadgeDrawableBounds(textView);
-                    }
-                } else {
-                    tryRemoveBadgeFromAnchor();
-                }
+                tryRemoveBadgeFromAnchor();
             }
         }
 
-        private void tryAttachBadgeToAnchor(@Nullable View anchorView) {
-            if (!hasBadgeDrawable()) {
-                return;
-            }
-            if (anchorView != null) {
-                // Avoid clipping a badge if it's displayed.
-                setClipChildren(false);
-                setClipToPadding(false);
-                BadgeUtils.attachBadgeDrawable(
-                        badgeDrawable, anchorView, getCustomParentForBadge(anchorView));
+        private void setBadgeAnchor(@NonNull View anchorView) {
+            if (badgeAnchorView != anchorView) {
                 badgeAnchorView = anchorView;
+                updateBadgeAnchorBounds();
+                invalidateBadgeLayer();
             }
         }
 
@@ -2446,17 +3521,39 @@ public class NiftyTabLayout extends HorizontalScrollView {
                 return;
             }
             if (badgeAnchorView != null) {
-                // Clip children / view to padding when no badge is displayed.
-                setClipChildren(true);
-                setClipToPadding(true);
-                BadgeUtils.detachBadgeDrawable(
-                        badgeDrawable, badgeAnchorView, getCustomParentForBadge(badgeAnchorView));
                 badgeAnchorView = null;
+                badgeAnchorBounds.setEmpty();
+                invalidateBadgeLayer();
+            }
+        }
+
+        /** Caches the bounds of the badge anchor in this view, read by the tab strip when drawing. */
+        private void updateBadgeAnchorBounds() {
+            final View anchor = badgeAnchorView;
+            if (anchor != null && anchor.getVisibility() == VISIBLE) {
+                badgeAnchorBounds.set(anchor.getLeft(), anchor.getTop(), anchor.getRight(), anchor.getBottom());
+            } else {
+                badgeAnchorBounds.setEmpty();
+            }
+        }
+
+        /** Redraws the tab strip, which draws the badges of all TabViews. */
+        private void invalidateBadgeLayer() {
+            if (owner != null) {
+                owner.slidingTabIndicator.invalidate();
+            }
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+            super.onLayout(changed, l, t, r, b);
+            if (badgeAnchorView != null) {
+                updateBadgeAnchorBounds();
             }
         }
 
         final void updateOrientation() {
-            setOrientation(inlineLabel ? HORIZONTAL : VERTICAL);
+            setOrientation(owner.inlineLabel ? HORIZONTAL : VERTICAL);
             if (customTextView != null || customIconView != null) {
                 updateTextAndIcon(customTextView, customIconView);
             } else {
@@ -2466,10 +3563,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
 
         private void updateTextAndIcon(
                 @Nullable final TextView textView, @Nullable final ImageView iconView) {
-            final Drawable icon =
-                    (tab != null && tab.getIcon() != null)
-                            ? DrawableCompat.wrap(tab.getIcon()).mutate()
-                            : null;
+            final Drawable icon = tab != null ? tab.iconTint.getDrawable() : null;
             final CharSequence text = tab != null ? tab.getText() : null;
 
             if (iconView != null) {
@@ -2484,6 +3578,9 @@ public class NiftyTabLayout extends HorizontalScrollView {
             }
 
             final boolean hasText = !TextUtils.isEmpty(text);
+            if (textView != null && textView == this.textView) {
+                pendingTextFuture = hasText ? tab.textFuture : null;
+            }
             if (textView != null) {
                 if (hasText) {
                     textView.setText(text);
@@ -2506,7 +3603,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
                     // If we're showing both text and icon, add some margin bottom to the icon
                     iconMargin = (int) TabUtils.dpToPx(getContext(), DEFAULT_GAP_TEXT_ICON);
                 }
-                if (inlineLabel) {
+                if (owner.inlineLabel) {
                     if (iconMargin != MarginLayoutParamsCompat.getMarginEnd(lp)) {
                         MarginLayoutParamsCompat.setMarginEnd(lp, iconMargin);
                         lp.bottomMargin = 0;
@@ -2529,25 +3626,10 @@ public class NiftyTabLayout extends HorizontalScrollView {
             TooltipCompat.setTooltipText(this, hasText ? null : contentDesc);
         }
 
-        private void tryUpdateBadgeDrawableBounds(@NonNull View anchor) {
-            // Check that this view is the badge's current anchor view.
-            if (hasBadgeDrawable() && anchor == badgeAnchorView) {
-                BadgeUtils.setBadgeDrawableBounds(badgeDrawable, anchor, getCustomParentForBadge(anchor));
-            }
-        }
-
         private boolean hasBadgeDrawable() {
             return badgeDrawable != null;
         }
 
-        @Nullable
-        private FrameLayout getCustomParentForBadge(@NonNull View anchor) {
-            if (anchor != iconView && anchor != textView) {
-                return null;
-            }
-            return BadgeUtils.USE_COMPAT_PARENT ? ((FrameLayout) anchor.getParent()) : null;
-        }
-
         /**
          * Calculates the width of the TabView's content.
          *
@@ -2555,19 +3637,50 @@ public class NiftyTabLayout extends HorizontalScrollView {
          *     is in inline mode, returns the sum of both the icon and tab label widths.
          */
         private int getContentWidth() {
-            boolean initialized = false;
-            int left = 0;
-            int right = 0;
+            int left = Integer.MAX_VALUE;
+            int right = Integer.MIN_VALUE;
 
-            for (View view : new View[] {textView, iconView, customView}) {
-                if (view != null && view.getVisibility() == View.VISIBLE) {
-                    left = initialized ? Math.min(left, view.getLeft()) : view.getLeft();
-                    right = initialized ? Math.max(right, view.getRight()) : view.getRight();
-                    initialized = true;
-                }
+            // Unrolled on purpose, this runs on every scroll frame and must not allocate.
+            if (textView != null && textView.getVisibility() == View.VISIBLE) {
+                left = Math.min(left, textView.getLeft());
+                right = Math.max(right, textView.getRight());
+            }
+            if (iconView != null && iconView.getVisibility() == View.VISIBLE) {
+                left = Math.min(left, iconView.getLeft());
+                right = Math.max(right, iconView.getRight());
             }
+            if (customView != null && customView.getVisibility() == View.VISIBLE) {
+                left = Math.min(left, customView.getLeft());
+                right = Math.max(right, customView.getRight());
+            }
+
+            return left <= right ? right - left : 0;
+        }
 
-            return right - left;
+        /**
+         * Calculates the width of the TabView's content from the measured sizes of its children, for
+         * tabs which have been measured but not laid out.
+         *
+         * @see #getContentWidth()
+         */
+        int getMeasuredContentWidth() {
+            if (customView != null) {
+                return customView.getVisibility() == View.VISIBLE ? customView.getMeasuredWidth() : 0;
+            }
+            final int textWidth =
+                    textView != null && textView.getVisibility() == View.VISIBLE
+                            ? textView.getMeasuredWidth()
+                            : 0;
+            int iconWidth = 0;
+            if (iconView != null && iconView.getVisibility() == View.VISIBLE) {
+                iconWidth = iconView.getMeasuredWidth();
+                if (getOrientation() == HORIZONTAL) {
+                    iconWidth +=
+                            MarginLayoutParamsCompat.getMarginEnd(
+                                    (MarginLayoutParams) iconView.getLayoutParams());
+                }
+            }
+            return getOrientation() == HORIZONTAL ? textWidth + iconWidth : Math.max(textWidth, iconWidth);
         }
 
         @Nullable
@@ -2575,37 +3688,30 @@ public class NiftyTabLayout extends HorizontalScrollView {
             return tab;
         }
 
-        /** Approximates a given lines width with the new provided text size. */
-        private float approximateLineWidth(@NonNull Layout layout, int line, float textSize) {
-            return layout.getLineWidth(line) * (textSize / layout.getPaint().getTextSize());
-        }
-
         private void updateTabColor(float fraction){
-            int textColor = getTextColorByFraction(fraction);
-            int iconColor = getIconColorByFraction(fraction);
+            int textColor = owner.getTextColorByFraction(fraction);
+            int iconColor = owner.getIconColorByFraction(fraction);
 
-            textView.setTextColor(textColor);
-            if (iconView.getVisibility() == VISIBLE){
-                final Drawable icon =
-                        (tab != null && tab.getIcon() != null)
-                                ? DrawableCompat.wrap(tab.getIcon()).mutate()
-                                : null;
-                if (icon != null) {
-                    DrawableCompat.setTint(icon, iconColor);
-                    DrawableCompat.setTintMode(icon, PorterDuff.Mode.SRC_ATOP);
-                }
+            if (textView != null && textView.getCurrentTextColor() != textColor) {
+                // setTextColor(int) allocates a ColorStateList, reuse the interpolator's instead
+                textView.setTextColor(owner.textColorInterpolator.colorStateListAt(fraction));
+            }
+            if (iconView != null && iconView.getVisibility() == VISIBLE && tab != null){
+                tab.iconTint.setTint(iconColor);
             }
         }
 
         private void updateTabSize(float fraction){
-            float tabSize = getTabSizeByFraction(fraction);
-            boolean isTabSelected = tab.isSelected();
-            float criticalValue = Math.min(selectedTextRadio,unSelectedTextRadio) + Math.abs(selectedTextRadio - unSelectedTextRadio)/2f;
+            if (textView == null || iconView == null) {
+                return;
+            }
+            float tabSize = owner.getTabSizeByFraction(fraction);
+            float criticalValue = owner.getBoldTextThreshold();
 
             if (textView.getVisibility() == VISIBLE) {
                 textView.setScaleX(tabSize);
                 textView.setScaleY(tabSize);
-                if (isSelectedTextBold) {
+                if (owner.isSelectedTextBold) {
                     TextPaint paint = textView.getPaint();
                     paint.setFakeBoldText(tabSize > criticalValue);
 //                    paint.setTypeface(tabSize > criticalValue?Typeface.DEFAULT_BOLD : Typeface.DEFAULT);
@@ -2631,14 +3737,51 @@ public class NiftyTabLayout extends HorizontalScrollView {
 
         private int indicatorLeft = -1;
         private int indicatorRight = -1;
+        private int indicatorTop;
+        private int indicatorBottom;
+        // Draws the indicator instead of the strip while active, see setTabIndicatorLayered()
+        @Nullable private IndicatorLayerView indicatorLayer;
 
         private ValueAnimator indicatorAnimator;
 
+        @Nullable private Drawable selectedIndicatorSource;
+        @Nullable private Drawable selectedIndicator;
+        private int selectedIndicatorTint;
+        private boolean selectedIndicatorTinted;
+
+        // Tab bounds of the last layout pass, read by the indicator and scroll code on every frame
+        @NonNull private final TabStripGeometry geometry = new TabStripGeometry();
+        private final int minIndicatorWidth;
+
+        // Virtualized tab strip, see setTabStripVirtualized(boolean)
+        @Nullable private TabView virtualMeasureView;
+        private int virtualTabHeight;
+
+        // Inputs of the last GRAVITY_CENTER / MODE_AUTO fit decision, see measureTabStrip
+        private boolean gravityDecisionValid;
+        private int gravityDecisionCount;
+        private int gravityDecisionContentWidth;
+        private int gravityDecisionAvailableWidth;
+
+        // Draw-only tabs, see setTabDrawOnly(boolean)
+        @NonNull private final TextPaint labelPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        @NonNull private final Rect drawOnlyBounds = new Rect();
+        // Anchor of the TabView badge being drawn, in strip coordinates
+        @NonNull private final Rect badgeAnchorBounds = new Rect();
+        private final int drawOnlyIconGap;
+        @Nullable private TabAccessibilityHelper accessibilityHelper;
+        private int pressedPosition = Tab.INVALID_POSITION;
+        // Tab the indicator is animating to and the animation progress, -1 when not animating
+        private int animationTargetPosition = -1;
+        private float animationFraction;
+
         SlidingTabIndicator(Context context) {
             super(context);
             setWillNotDraw(false);
             selectedIndicatorPaint = new Paint();
             defaultSelectionIndicator = new GradientDrawable();
+            minIndicatorWidth = (int) TabUtils.dpToPx(context, MIN_INDICATOR_WIDTH);
+            drawOnlyIconGap = (int) TabUtils.dpToPx(context, DEFAULT_GAP_TEXT_ICON);
         }
 
         void setSelectedIndicatorColor(int color) {
@@ -2655,6 +3798,133 @@ public class NiftyTabLayout extends HorizontalScrollView {
             }
         }
 
+        /** Requests a new layout pass to rebuild the virtualized tab strip geometry. */
+        void invalidateVirtualGeometry() {
+            if (virtualTabStripActive) {
+                requestLayout();
+                if (drawOnlyTabsActive) {
+                    // The bounds may not change, but the drawn content did
+                    invalidate();
+                }
+            }
+        }
+
+        /** Restyles the bound TabViews and the one measuring unbound tabs. */
+        void restyleTabViews() {
+            for (int i = 0, z = getChildCount(); i < z; i++) {
+                final View child = getChildAt(i);
+                if (child instanceof TabView) {
+                    ((TabView) child).restyle();
+                }
+            }
+            if (virtualMeasureView != null) {
+                virtualMeasureView.restyle();
+            }
+        }
+
+        /** Drops the cached tab widths of the virtualized tab strip, e.g. after a style change. */
+        void invalidateVirtualTabWidths() {
+            for (int i = 0, z = tabs.size(); i < z; i++) {
+                final Tab tab = tabs.get(i);
+                tab.virtualWidth = -1;
+                tab.labelLayout = null;
+                tab.labelText = null;
+            }
+            virtualTabHeight = 0;
+        }
+
+        /** Installs or removes the draw-only touch and accessibility handling. */
+        void onDrawOnlyChanged() {
+            if (drawOnlyTabsActive) {
+                accessibilityHelper = new TabAccessibilityHelper(this);
+                ViewCompat.setAccessibilityDelegate(this, accessibilityHelper);
+            } else {
+                accessibilityHelper = null;
+                ViewCompat.setAccessibilityDelegate(this, null);
+            }
+            pressedPosition = Tab.INVALID_POSITION;
+            invalidateVirtualTabWidths();
+            requestLayout();
+            invalidate();
+        }
+
+        /** Returns whether {@code tab} gets a TabView when it is in the viewport. */
+        private boolean needsTabView(@NonNull Tab tab) {
+            return !drawOnlyTabsActive || tab.getCustomView() != null;
+        }
+
+        /** Adds a TabView without requesting a layout, see {@link #beginTabTransaction()}. */
+        void addViewWithoutLayout(@NonNull View child, int index, @NonNull ViewGroup.LayoutParams params) {
+            addViewInLayout(child, index, params, true);
+        }
+
+        /** Returns the tab position of the child at {@code index}. */
+        int getChildTabPosition(int index) {
+            if (virtualTabStripActive) {
+                final Tab tab = ((TabView) getChildAt(index)).getTab();
+                return tab != null ? tab.getPosition() : Tab.INVALID_POSITION;
+            }
+            return index;
+        }
+
+        /** Returns the bound TabView of the tab at {@code position}, or null if there is none. */
+        @Nullable
+        TabView getTabViewAt(int position) {
+            if (virtualTabStripActive) {
+                return position >= 0 && position < tabs.size() ? tabs.get(position).view : null;
+            }
+            final View child = getChildAt(position);
+            return child instanceof TabView ? (TabView) child : null;
+        }
+
+        int getTabLeft(int position) {
+            return geometry.contains(position) ? geometry.getLeft(position) : 0;
+        }
+
+        int getTabWidth(int position) {
+            return geometry.contains(position) ? geometry.getWidth(position) : 0;
+        }
+
+        /** Returns whether the tab at {@code position} has been laid out with a non-zero width. */
+        private boolean hasIndicatorBounds(int position) {
+            return geometry.contains(position) && geometry.getWidth(position) > 0;
+        }
+
+        private int getIndicatorLeft(int position) {
+            return tabIndicatorFullWidth ? geometry.getLeft(position) : geometry.getContentLeft(position);
+        }
+
+        private int getIndicatorRight(int position) {
+            return tabIndicatorFullWidth ? geometry.getRight(position) : geometry.getContentRight(position);
+        }
+
+        /** Captures the bounds of the laid out TabViews, once per layout pass. */
+        private void updateGeometryFromChildren() {
+            final int count = getChildCount();
+            geometry.reset(count, ViewCompat.getLayoutDirection(this) == ViewCompat.LAYOUT_DIRECTION_RTL);
+            for (int i = 0; i < count; i++) {
+                final View child = getChildAt(i);
+                if (child instanceof TabView) {
+                    calculateTabViewContentBounds((TabView) child, tabViewContentBounds);
+                    geometry.set(
+                            i,
+                            child.getLeft(),
+                            child.getRight(),
+                            (int) tabViewContentBounds.left,
+                            (int) tabViewContentBounds.right);
+                } else {
+                    geometry.set(i, child.getLeft(), child.getRight(), child.getLeft(), child.getRight());
+                }
+            }
+        }
+
+        /** Binds and lays out the tabs which scrolled into the viewport. */
+        void onViewportChanged() {
+            if (geometry.getCount() > 0 && !isLayoutRequested()) {
+                layoutVirtualWindow(false);
+            }
+        }
+
         boolean childrenNeedLayout() {
             for (int i = 0, z = getChildCount(); i < z; i++) {
                 final View child = getChildAt(i);
@@ -2695,6 +3965,20 @@ public class NiftyTabLayout extends HorizontalScrollView {
 
         @Override
         protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+            final TabLayoutMetrics metrics = NiftyTabLayout.this.metrics;
+            final long startNanos = metrics != null ? System.nanoTime() : 0L;
+            if (virtualTabStripActive) {
+                measureVirtual(widthMeasureSpec, heightMeasureSpec);
+            } else {
+                measureTabStrip(widthMeasureSpec, heightMeasureSpec);
+            }
+            if (metrics != null) {
+                metrics.addStripMeasure(System.nanoTime() - startNanos);
+            }
+        }
+
+        private void measureTabStrip(final int widthMeasureSpec, final int heightMeasureSpec) {
+
             super.onMeasure(widthMeasureSpec, heightMeasureSpec);
 
             if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.EXACTLY) {
@@ -2708,54 +3992,261 @@ public class NiftyTabLayout extends HorizontalScrollView {
             // fit in the SlidingTabIndicator, then fall back to GRAVITY_FILL behavior.
             if ((tabGravity == GRAVITY_CENTER) || mode == MODE_AUTO) {
                 final int count = getChildCount();
+                final int gutter = (int) TabUtils.dpToPx(getContext(), FIXED_WRAP_GUTTER_MIN);
+                final int availableWidth = getMeasuredWidth() - gutter * 2;
+
+                if (gravityDecisionValid
+                        && gravityDecisionCount == count
+                        && gravityDecisionAvailableWidth == availableWidth
+                        && gravityDecisionContentWidth == getTabContentWidth()) {
+                    // Neither the tabs nor our width changed, the last decision still holds
+                    return;
+                }
+
+                if (tabGravityFillFallback && mode == MODE_FIXED) {
+                    // Filled tabs are stretched, measure their natural widths again before deciding
+                    tabGravityFillFallback = false;
+                    updateTabViews(false);
+                    super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+                }
+
+                // First we'll find the widest tab
+                int largestTabWidth = 0;
+                for (int i = 0, z = count; i < z; i++) {
+                    View child = getChildAt(i);
+                    if (child.getVisibility() == VISIBLE) {
+                        largestTabWidth = Math.max(largestTabWidth, child.getMeasuredWidth());
+                    }
+                }
+
+                if (largestTabWidth <= 0) {
+                    // If we don't have a largest child yet, skip until the next measure pass
+                    return;
+                }
+
+                boolean remeasure = false;
+
+                if (largestTabWidth * count <= availableWidth) {
+                    // If the tabs fit within our width minus gutters, we will set all tabs to have
+                    // the same width
+                    tabGravityFillFallback = false;
+                    for (int i = 0; i < count; i++) {
+                        final LinearLayout.LayoutParams lp = (LayoutParams) getChildAt(i).getLayoutParams();
+                        if (lp.width != largestTabWidth || lp.weight != 0) {
+                            lp.width = largestTabWidth;
+                            lp.weight = 0;
+                            remeasure = true;
+                        }
+                    }
+                } else if (!tabGravityFillFallback) {
+                    // If the tabs will wrap to be larger than the width minus gutters, we need
+                    // to lay them out as GRAVITY_FILL. The requested tab gravity is kept so the
+                    // decision can be revisited once the tabs or our width change.
+                    tabGravityFillFallback = true;
+                    updateTabViews(false);
+                    remeasure = true;
+                }
+
+                if (remeasure) {
+                    // Now re-measure after our changes
+                    super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+                }
+
+                gravityDecisionValid = true;
+                gravityDecisionCount = count;
+                gravityDecisionAvailableWidth = availableWidth;
+                gravityDecisionContentWidth = getTabContentWidth();
+            }
+        }
+
+        /** Forces the next EXACTLY measure pass to redo the GRAVITY_CENTER / MODE_AUTO fit decision. */
+        void invalidateGravityDecision() {
+            gravityDecisionValid = false;
+        }
+
+        /** Sum of the measured widths of the visible tabs. */
+        private int getTabContentWidth() {
+            int width = 0;
+            for (int i = 0, count = getChildCount(); i < count; i++) {
+                final View child = getChildAt(i);
+                if (child.getVisibility() == VISIBLE) {
+                    width += child.getMeasuredWidth();
+                }
+            }
+            return width;
+        }
+
+        /**
+         * Measures the virtualized tab strip from the cached tab widths. Only tabs whose width is
+         * unknown are measured, unbound ones through a single scratch TabView.
+         */
+        private void measureVirtual(final int widthMeasureSpec, final int heightMeasureSpec) {
+            final int count = tabs.size();
+            final int childHeightMeasureSpec =
+                    getChildMeasureSpec(
+                            heightMeasureSpec, getPaddingTop() + getPaddingBottom(), LayoutParams.MATCH_PARENT);
+
+            int tabsWidth = 0;
+            for (int i = 0; i < count; i++) {
+                final Tab tab = tabs.get(i);
+                if (tab.virtualWidth < 0) {
+                    measureVirtualTab(tab, childHeightMeasureSpec);
+                }
+                tabsWidth += tab.virtualWidth;
+            }
+
+            final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+            final int width =
+                    MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.EXACTLY
+                            ? MeasureSpec.getSize(widthMeasureSpec)
+                            : tabsWidth + horizontalPadding;
+            final int height =
+                    resolveSize(virtualTabHeight + getPaddingTop() + getPaddingBottom(), heightMeasureSpec);
+            setMeasuredDimension(width, height);
+
+            // Lay the tabs out end to end, mirrored in RTL like LinearLayout does
+            final boolean reversed = ViewCompat.getLayoutDirection(this) == ViewCompat.LAYOUT_DIRECTION_RTL;
+            geometry.reset(count, reversed);
+            int start = reversed ? width - getPaddingRight() : getPaddingLeft();
+            for (int i = 0; i < count; i++) {
+                final Tab tab = tabs.get(i);
+                final int left = reversed ? start - tab.virtualWidth : start;
+                final int right = left + tab.virtualWidth;
+                calculateContentBounds(left, right, tab.virtualContentWidth, tabViewContentBounds);
+                geometry.set(
+                        i, left, right, (int) tabViewContentBounds.left, (int) tabViewContentBounds.right);
+                start = reversed ? left : right;
+            }
+        }
 
-                // First we'll find the widest tab
-                int largestTabWidth = 0;
-                for (int i = 0, z = count; i < z; i++) {
-                    View child = getChildAt(i);
-                    if (child.getVisibility() == VISIBLE) {
-                        largestTabWidth = Math.max(largestTabWidth, child.getMeasuredWidth());
-                    }
+        private void measureVirtualTab(@NonNull Tab tab, int childHeightMeasureSpec) {
+            TabView tabView = tab.view;
+            final boolean scratch = tabView == null;
+            if (scratch) {
+                if (virtualMeasureView == null) {
+                    virtualMeasureView = new TabView(NiftyTabLayout.this);
                 }
+                tabView = virtualMeasureView;
+                tabView.setTab(tab);
+                tabView.setOrientation(inlineLabel ? LinearLayout.HORIZONTAL : LinearLayout.VERTICAL);
+                tabView.setMinimumWidth(getTabMinWidth());
+            }
+            tabView.measure(
+                    MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), childHeightMeasureSpec);
+            tab.virtualWidth = tabView.getMeasuredWidth();
+            tab.virtualContentWidth = tabView.getMeasuredContentWidth();
+            virtualTabHeight = Math.max(virtualTabHeight, tabView.getMeasuredHeight());
+            if (tab.getCustomView() == null && tabView.textView != null) {
+                // Draw-only labels use the text appearance the TabView was inflated with, including
+                // its transformation
+                labelPaint.set(tabView.textView.getPaint());
+                tab.labelText =
+                        tab.text != null ? TabUtils.getTransformedText(tabView.textView, tab.text) : null;
+            }
+            if (scratch) {
+                tabView.setTab(null);
+            }
+        }
 
-                if (largestTabWidth <= 0) {
-                    // If we don't have a largest child yet, skip until the next measure pass
-                    return;
+        /**
+         * Binds TabViews to the tabs in and near the viewport, recycles the others, and lays out the
+         * bound ones from the geometry.
+         *
+         * @param inLayout whether this runs during a layout pass, in which case every bound TabView
+         *     is laid out again rather than only the newly bound ones
+         */
+        private void layoutVirtualWindow(boolean inLayout) {
+            final TabStripGeometry geometry = geometry;
+            final int count = Math.min(geometry.getCount(), tabs.size());
+
+            int first = -1;
+            int last = -1;
+            if (count > 0) {
+                final int viewportLeft = getViewportLeft();
+                final int viewportRight = viewportLeft + getViewportWidth();
+                first = geometry.firstVisible(viewportLeft, viewportRight);
+                last = geometry.lastVisible(viewportLeft, viewportRight);
+                if (first >= 0) {
+                    first = Math.max(0, first - VIRTUAL_OFFSCREEN_TAB_COUNT);
+                    last = Math.min(count - 1, last + VIRTUAL_OFFSCREEN_TAB_COUNT);
                 }
+            }
 
-                final int gutter = (int) TabUtils.dpToPx(getContext(), FIXED_WRAP_GUTTER_MIN);
-                boolean remeasure = false;
+            boolean changed = false;
+            for (int i = getChildCount() - 1; i >= 0; i--) {
+                final TabView child = (TabView) getChildAt(i);
+                final Tab tab = child.getTab();
+                final int position = tab != null ? tab.getPosition() : Tab.INVALID_POSITION;
+                if (tab == null || position < first || position > last || !needsTabView(tab)) {
+                    removeViewInLayout(child);
+                    if (tab != null) {
+                        unbindVirtualTabView(tab);
+                    } else {
+                        recycleTabView(child);
+                    }
+                    changed = true;
+                }
+            }
 
-                if (largestTabWidth * count <= getMeasuredWidth() - gutter * 2) {
-                    // If the tabs fit within our width minus gutters, we will set all tabs to have
-                    // the same width
-                    for (int i = 0; i < count; i++) {
-                        final LinearLayout.LayoutParams lp = (LayoutParams) getChildAt(i).getLayoutParams();
-                        if (lp.width != largestTabWidth || lp.weight != 0) {
-                            lp.width = largestTabWidth;
-                            lp.weight = 0;
-                            remeasure = true;
+            final int childTop = getPaddingTop();
+            final int childHeight = getHeight() - childTop - getPaddingBottom();
+            if (first >= 0) {
+                // Children are kept sorted by position, and [first, last] ends up fully bound, except
+                // for the tabs which are drawn by the strip itself
+                int index = 0;
+                for (int position = first; position <= last; position++) {
+                    final Tab tab = tabs.get(position);
+                    if (!needsTabView(tab)) {
+                        continue;
+                    }
+                    TabView child = tab.view;
+                    if (child == null) {
+                        child = bindVirtualTabView(tab);
+                        addViewInLayout(child, index++, createLayoutParamsForTabs(), true);
+                        changed = true;
+                    } else {
+                        index++;
+                        if (!inLayout) {
+                            continue;
                         }
                     }
-                } else {
-                    // If the tabs will wrap to be larger than the width minus gutters, we need
-                    // to switch to GRAVITY_FILL.
-                    // TODO (b/129799806): This overrides the user TabGravity setting.
-                    tabGravity = GRAVITY_FILL;
-                    updateTabViews(false);
-                    remeasure = true;
+                    child.measure(
+                            MeasureSpec.makeMeasureSpec(geometry.getWidth(position), MeasureSpec.EXACTLY),
+                            MeasureSpec.makeMeasureSpec(childHeight, MeasureSpec.EXACTLY));
+                    child.layout(
+                            geometry.getLeft(position),
+                            childTop,
+                            geometry.getRight(position),
+                            childTop + childHeight);
                 }
+            }
 
-                if (remeasure) {
-                    // Now re-measure after our changes
-                    super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            if (changed) {
+                invalidate();
+                if (metrics != null) {
+                    metrics.addInvalidation();
                 }
             }
         }
 
+        /** Returns the left edge of the viewport, in the coordinates of this view. */
+        private int getViewportLeft() {
+            return NiftyTabLayout.this.getScrollX() - getLeft();
+        }
+
+        private int getViewportWidth() {
+            final int viewportWidth = NiftyTabLayout.this.getWidth();
+            return viewportWidth > 0 ? viewportWidth : getResources().getDisplayMetrics().widthPixels;
+        }
+
         @Override
         protected void onLayout(boolean changed, int l, int t, int r, int b) {
-            super.onLayout(changed, l, t, r, b);
+            if (virtualTabStripActive) {
+                layoutVirtualWindow(true);
+            } else {
+                super.onLayout(changed, l, t, r, b);
+                updateGeometryFromChildren();
+            }
 
             if (indicatorAnimator != null && indicatorAnimator.isRunning()) {
                 // If we're currently running an animation, lets cancel it and start a
@@ -2772,31 +4263,21 @@ public class NiftyTabLayout extends HorizontalScrollView {
         }
 
         private void updateIndicatorPosition() {
-            final View selectedTitle = getChildAt(selectedPosition);
+            final TabLayoutMetrics metrics = NiftyTabLayout.this.metrics;
+            final long startNanos = metrics != null ? System.nanoTime() : 0L;
             int left;
             int right;
 
-            if (selectedTitle != null && selectedTitle.getWidth() > 0) {
-                left = selectedTitle.getLeft();
-                right = selectedTitle.getRight();
-
-                if (!tabIndicatorFullWidth && selectedTitle instanceof TabView) {
-                    calculateTabViewContentBounds((TabView) selectedTitle, tabViewContentBounds);
-                    left = (int) tabViewContentBounds.left;
-                    right = (int) tabViewContentBounds.right;
-                }
+            if (hasIndicatorBounds(selectedPosition)) {
+                left = getIndicatorLeft(selectedPosition);
+                right = getIndicatorRight(selectedPosition);
 
-                if (selectionOffset > 0f && selectedPosition < getChildCount() - 1) {
+                if (selectionOffset > 0f
+                        && selectedPosition < getTabCount() - 1
+                        && hasIndicatorBounds(selectedPosition + 1)) {
                     // Draw the selection partway between the tabs
-                    View nextTitle = getChildAt(selectedPosition + 1);
-                    int nextTitleLeft = nextTitle.getLeft();
-                    int nextTitleRight = nextTitle.getRight();
-
-                    if (!tabIndicatorFullWidth && nextTitle instanceof TabView) {
-                        calculateTabViewContentBounds((TabView) nextTitle, tabViewContentBounds);
-                        nextTitleLeft = (int) tabViewContentBounds.left;
-                        nextTitleRight = (int) tabViewContentBounds.right;
-                    }
+                    int nextTitleLeft = getIndicatorLeft(selectedPosition + 1);
+                    int nextTitleRight = getIndicatorRight(selectedPosition + 1);
 
                     left = (int) (getLeftInterpolation(selectionOffset) * nextTitleLeft + (1.0f - getLeftInterpolation(selectionOffset)) * left);
                     right = (int) (getRightInterpolation(selectionOffset) * nextTitleRight + (1.0f - getRightInterpolation(selectionOffset)) * right);
@@ -2806,26 +4287,101 @@ public class NiftyTabLayout extends HorizontalScrollView {
                 left = right = -1;
             }
 
-            if (selectedPosition <= getChildCount() - 1) {
-                if (selectedTitle instanceof TabView) {
-                    ((TabView) selectedTitle).updateTabColor(1 - selectionOffset);
-                    ((TabView) selectedTitle).updateTabSize(1 - selectionOffset);
-                }
-                if (getChildAt(selectedPosition + 1) instanceof TabView) {
-                    ((TabView) getChildAt(selectedPosition + 1)).updateTabColor(selectionOffset);
-                    ((TabView) getChildAt(selectedPosition + 1)).updateTabSize(selectionOffset);
-                }
+            final TabView selectedTitle = getTabViewAt(selectedPosition);
+            if (selectedTitle != null) {
+                selectedTitle.updateTabColor(1 - selectionOffset);
+                selectedTitle.updateTabSize(1 - selectionOffset);
+            }
+            final TabView nextTitle = getTabViewAt(selectedPosition + 1);
+            if (nextTitle != null) {
+                nextTitle.updateTabColor(selectionOffset);
+                nextTitle.updateTabSize(selectionOffset);
             }
 
             setIndicatorPosition(left, right);
+
+            if (metrics != null) {
+                metrics.addTabViewsTouched((selectedTitle != null ? 1 : 0) + (nextTitle != null ? 1 : 0));
+                metrics.addIndicatorUpdate(System.nanoTime() - startNanos);
+            }
         }
 
         void setIndicatorPosition(int left, int right) {
             if (left != indicatorLeft || right != indicatorRight) {
-                // If the indicator's left/right has changed, invalidate
                 indicatorLeft = left;
                 indicatorRight = right;
+                if (isIndicatorLayerActive() && !drawOnlyTabsActive) {
+                    // Only the layer moves, the strip content is unchanged. Draw-only tabs are
+                    // colored by the indicator position, they need the strip drawn again
+                    updateIndicatorLayer();
+                    return;
+                }
+                // If the indicator's left/right has changed, invalidate
                 ViewCompat.postInvalidateOnAnimation(this);
+                if (metrics != null) {
+                    metrics.addInvalidation();
+                }
+            }
+        }
+
+        /** Returns whether the indicator is drawn by {@link #indicatorLayer}. */
+        private boolean isIndicatorLayerActive() {
+            return tabIndicatorLayered
+                    && VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN_MR2
+                    && (tabIndicatorGravity == INDICATOR_GRAVITY_BOTTOM
+                            || tabIndicatorGravity == INDICATOR_GRAVITY_TOP);
+        }
+
+        /** Moves the indicator layer to the current indicator bounds, or hides it without bounds. */
+        private void updateIndicatorLayer() {
+            IndicatorLayerView layer = indicatorLayer;
+            if (layer == null) {
+                layer = indicatorLayer = new IndicatorLayerView(getContext());
+                if (VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN_MR2) {
+                    getOverlay().add(layer);
+                }
+            }
+            if (indicatorLeft >= 0 && indicatorRight > indicatorLeft) {
+                updateIndicatorVerticalBounds();
+                layer.place(indicatorLeft, indicatorTop, indicatorRight, indicatorBottom);
+                layer.setVisibility(VISIBLE);
+            } else {
+                layer.setVisibility(INVISIBLE);
+            }
+        }
+
+        /** Updates the top and bottom of the indicator from its height and gravity. */
+        private void updateIndicatorVerticalBounds() {
+            int indicatorHeight = 0;
+            if (tabSelectedIndicator != null) {
+                indicatorHeight = tabSelectedIndicator.getIntrinsicHeight();
+            }
+            if (selectedIndicatorHeight >= 0) {
+                indicatorHeight = selectedIndicatorHeight;
+            }
+
+            indicatorTop = 0;
+            indicatorBottom = 0;
+
+            switch (tabIndicatorGravity) {
+                case INDICATOR_GRAVITY_BOTTOM:
+                    indicatorTop = getHeight() - indicatorHeight;
+                    indicatorBottom = getHeight();
+                    break;
+                case INDICATOR_GRAVITY_CENTER:
+                    indicatorTop = (getHeight() - indicatorHeight) / 2;
+                    indicatorBottom = (getHeight() + indicatorHeight) / 2;
+                    break;
+                case INDICATOR_GRAVITY_TOP:
+                    indicatorTop = 0;
+                    indicatorBottom = indicatorHeight;
+                    break;
+                case INDICATOR_GRAVITY_STRETCH:
+                    indicatorTop = 0;
+                    indicatorBottom = getHeight();
+                    break;
+                default:
+                    break;
             }
         }
 
@@ -2834,24 +4390,14 @@ public class NiftyTabLayout extends HorizontalScrollView {
                 indicatorAnimator.end();
             }
 
-            final View targetView = getChildAt(position);
-            if (targetView == null) {
+            if (!hasIndicatorBounds(position)) {
                 // If we don't have a view, just update the position now and return
                 updateIndicatorPosition();
                 return;
             }
 
-            int targetLeft = targetView.getLeft();
-            int targetRight = targetView.getRight();
-
-            if (!tabIndicatorFullWidth && targetView instanceof TabView) {
-                calculateTabViewContentBounds((TabView) targetView, tabViewContentBounds);
-                targetLeft = (int) tabViewContentBounds.left;
-                targetRight = (int) tabViewContentBounds.right;
-            }
-
-            final int finalTargetLeft = targetLeft;
-            final int finalTargetRight = targetRight;
+            final int finalTargetLeft = getIndicatorLeft(position);
+            final int finalTargetRight = getIndicatorRight(position);
 
             final int startLeft = indicatorLeft;
             final int startRight = indicatorRight;
@@ -2866,15 +4412,26 @@ public class NiftyTabLayout extends HorizontalScrollView {
                             @Override
                             public void onAnimationUpdate(@NonNull ValueAnimator valueAnimator) {
                                 final float fraction = valueAnimator.getAnimatedFraction();
+                                animationTargetPosition = position;
+                                animationFraction = fraction;
                                 setIndicatorPosition(lerp(startLeft, finalTargetLeft, fraction),
                                         lerp(startRight, finalTargetRight, fraction));
-                                if (getChildAt(position) instanceof TabView) {
-                                    ((TabView) getChildAt(position)).updateTabColor(fraction);
-                                    ((TabView) getChildAt(position)).updateTabSize(fraction);
+                                if (drawOnlyTabsActive) {
+                                    ViewCompat.postInvalidateOnAnimation(SlidingTabIndicator.this);
+                                }
+                                final TabView targetView = getTabViewAt(position);
+                                if (targetView != null) {
+                                    targetView.updateTabColor(fraction);
+                                    targetView.updateTabSize(fraction);
+                                }
+                                final TabView selectedView = getTabViewAt(selectedPosition);
+                                if (selectedView != null) {
+                                    selectedView.updateTabColor(1-fraction);
+                                    selectedView.updateTabSize((1 - fraction));
                                 }
-                                if (getChildAt(selectedPosition) instanceof TabView) {
-                                    ((TabView) getChildAt(selectedPosition)).updateTabColor(1-fraction);
-                                    ((TabView) getChildAt(selectedPosition)).updateTabSize((1 - fraction));
+                                if (metrics != null) {
+                                    metrics.addTabViewsTouched(
+                                            (targetView != null ? 1 : 0) + (selectedView != null ? 1 : 0));
                                 }
                             }
                         });
@@ -2884,6 +4441,7 @@ public class NiftyTabLayout extends HorizontalScrollView {
                             public void onAnimationEnd(Animator animator) {
                                 selectedPosition = position;
                                 selectionOffset = 0f;
+                                animationTargetPosition = -1;
                             }
                         });
                 animator.start();
@@ -2904,76 +4462,418 @@ public class NiftyTabLayout extends HorizontalScrollView {
          */
         private void calculateTabViewContentBounds(
                 @NonNull TabView tabView, @NonNull RectF contentBounds) {
-            int tabViewContentWidth = tabView.getContentWidth();
-            int minIndicatorWidth = (int) TabUtils.dpToPx(getContext(), MIN_INDICATOR_WIDTH);
+            calculateContentBounds(
+                    tabView.getLeft(), tabView.getRight(), tabView.getContentWidth(), contentBounds);
+        }
 
+        /**
+         * Calculates the content bounds of a tab spanning {@code [left, right)} with the given content
+         * width.
+         *
+         * @see #calculateTabViewContentBounds(TabView, RectF)
+         */
+        private void calculateContentBounds(
+                int left, int right, int tabViewContentWidth, @NonNull RectF contentBounds) {
             if (tabViewContentWidth < minIndicatorWidth) {
                 tabViewContentWidth = minIndicatorWidth;
             }
 
-            int tabViewCenter = (tabView.getLeft() + tabView.getRight()) / 2;
-            int contentLeftBounds = (int) (tabViewCenter - (tabViewContentWidth/ 2 * tabIndicatorWidthRatio));
-            int contentRightBounds = (int) (tabViewCenter + (tabViewContentWidth / 2 * tabIndicatorWidthRatio));
+            int contentLeftBounds =
+                    TabStripGeometry.contentLeft(left, right, tabViewContentWidth, tabIndicatorWidthRatio);
+            int contentRightBounds =
+                    TabStripGeometry.contentRight(left, right, tabViewContentWidth, tabIndicatorWidthRatio);
 
             contentBounds.set(contentLeftBounds, 0, contentRightBounds, 0);
         }
 
         @Override
         public void draw(@NonNull Canvas canvas) {
-            int indicatorHeight = 0;
-            if (tabSelectedIndicator != null) {
-                indicatorHeight = tabSelectedIndicator.getIntrinsicHeight();
-            }
-            if (selectedIndicatorHeight >= 0) {
-                indicatorHeight = selectedIndicatorHeight;
-            }
-
-            int indicatorTop = 0;
-            int indicatorBottom = 0;
-
-            switch (tabIndicatorGravity) {
-                case INDICATOR_GRAVITY_BOTTOM:
-                    indicatorTop = getHeight() - indicatorHeight;
-                    indicatorBottom = getHeight();
-                    break;
-                case INDICATOR_GRAVITY_CENTER:
-                    indicatorTop = (getHeight() - indicatorHeight) / 2;
-                    indicatorBottom = (getHeight() + indicatorHeight) / 2;
-                    break;
-                case INDICATOR_GRAVITY_TOP:
-                    indicatorTop = 0;
-                    indicatorBottom = indicatorHeight;
-                    break;
-                case INDICATOR_GRAVITY_STRETCH:
-                    indicatorTop = 0;
-                    indicatorBottom = getHeight();
-                    break;
-                default:
-                    break;
+            updateIndicatorVerticalBounds();
+            final boolean layered = isIndicatorLayerActive();
+            if (!layered && indicatorLayer != null) {
+                indicatorLayer.setVisibility(INVISIBLE);
             }
 
             // Draw the selection indicator on top of tab item backgrounds
             if (indicatorLeft >= 0 && indicatorRight > indicatorLeft) {
-                Drawable selectedIndicator;
-                selectedIndicator =
-                        DrawableCompat.wrap(
-                                tabSelectedIndicator != null ? tabSelectedIndicator : defaultSelectionIndicator);
+                final Drawable selectedIndicator = getSelectedIndicator();
                 selectedIndicator.setBounds(indicatorLeft, indicatorTop, indicatorRight, indicatorBottom);
 
-                if (selectedIndicatorPaint != null && enableTintIndicator) {
+                final int tint = selectedIndicatorPaint.getColor();
+                if (enableTintIndicator && (!selectedIndicatorTinted || selectedIndicatorTint != tint)) {
+                    // Tinting allocates a ColorStateList or ColorFilter, only do it when it changes
                     if (VERSION.SDK_INT == VERSION_CODES.LOLLIPOP) {
                         // Drawable doesn't implement setTint in API 21
-                        selectedIndicator.setColorFilter(
-                                selectedIndicatorPaint.getColor(), PorterDuff.Mode.SRC_IN);
+                        selectedIndicator.setColorFilter(tint, PorterDuff.Mode.SRC_IN);
                     } else {
-                        DrawableCompat.setTint(selectedIndicator, selectedIndicatorPaint.getColor());
+                        DrawableCompat.setTint(selectedIndicator, tint);
                     }
+                    selectedIndicatorTint = tint;
+                    selectedIndicatorTinted = true;
+                    if (indicatorLayer != null) {
+                        indicatorLayer.invalidate();
+                    }
+                }
+                if (!layered) {
+                    selectedIndicator.draw(canvas);
                 }
-                selectedIndicator.draw(canvas);
+            }
+            if (layered) {
+                // The strip is drawn again after anything but a move, the indicator may have changed
+                updateIndicatorLayer();
+                indicatorLayer.setIndicator(getSelectedIndicator());
             }
 
             // Draw the tab item contents (icon and label) on top of the background + indicator layers
             super.draw(canvas);
+
+            // Badges go above every tab, drawn in one pass instead of one overlay per anchor
+            drawTabViewBadges(canvas);
+
+            if (drawOnlyTabsActive) {
+                drawTabs(canvas);
+            }
+        }
+
+        /** Draws the badges of the tabs backed by a TabView, anchored to their cached anchor bounds. */
+        private void drawTabViewBadges(@NonNull Canvas canvas) {
+            for (int i = 0, z = getChildCount(); i < z; i++) {
+                final View child = getChildAt(i);
+                if (!(child instanceof TabView) || child.getVisibility() != VISIBLE) {
+                    continue;
+                }
+                final TabView tabView = (TabView) child;
+                final BadgeDrawable badge = tabView.badgeDrawable;
+                if (badge == null || tabView.badgeAnchorView == null || tabView.badgeAnchorBounds.isEmpty()) {
+                    continue;
+                }
+                badgeAnchorBounds.set(tabView.badgeAnchorBounds);
+                badgeAnchorBounds.offset(child.getLeft(), child.getTop());
+                if (badge.getCallback() != this) {
+                    badge.setCallback(this);
+                }
+                badge.updateBadgeCoordinates(badgeAnchorBounds);
+                badge.draw(canvas);
+            }
+        }
+
+        /** Draws the tabs in the viewport which are not backed by a TabView. */
+        private void drawTabs(@NonNull Canvas canvas) {
+            final int count = Math.min(geometry.getCount(), tabs.size());
+            if (count == 0) {
+                return;
+            }
+            final int viewportLeft = getViewportLeft();
+            final int viewportRight = viewportLeft + getViewportWidth();
+            final int first = geometry.firstVisible(viewportLeft, viewportRight);
+            final int last = geometry.lastVisible(viewportLeft, viewportRight);
+            for (int position = Math.max(first, 0); position <= last && position < count; position++) {
+                final Tab tab = tabs.get(position);
+                if (tab.view == null) {
+                    drawTab(canvas, tab, position);
+                }
+            }
+        }
+
+        /**
+         * Draws the icon, label and badge of a tab the way a TabView lays them out: centered within
+         * the tab padding, the icon above the label or in front of it with an inline label.
+         */
+        private void drawTab(@NonNull Canvas canvas, @NonNull Tab tab, int position) {
+            final boolean rtl = geometry.isReversed();
+            final int contentLeft = geometry.getLeft(position) + (rtl ? tabPaddingEnd : tabPaddingStart);
+            final int contentRight = geometry.getRight(position) - (rtl ? tabPaddingStart : tabPaddingEnd);
+            final int contentTop = getPaddingTop() + tabPaddingTop;
+            final int contentBottom = getHeight() - getPaddingBottom() - tabPaddingBottom;
+            final int centerX = (contentLeft + contentRight) / 2;
+            final int centerY = (contentTop + contentBottom) / 2;
+
+            final Drawable icon = tab.iconTint.getDrawable();
+            int iconWidth = 0;
+            int iconHeight = 0;
+            if (icon != null) {
+                iconWidth = icon.getIntrinsicWidth();
+                iconHeight = icon.getIntrinsicHeight();
+                if (iconTabHeight != 0) {
+                    iconWidth = iconHeight > 0 ? iconWidth * iconTabHeight / iconHeight : iconTabHeight;
+                    iconHeight = iconTabHeight;
+                }
+                iconWidth = Math.max(iconWidth, 0);
+                iconHeight = Math.max(iconHeight, 0);
+            }
+            final Layout label =
+                    !TextUtils.isEmpty(tab.text) && tab.labelVisibilityMode == TAB_LABEL_VISIBILITY_LABELED
+                            ? getLabelLayout(tab, contentRight - contentLeft)
+                            : null;
+            final int labelWidth = label != null ? label.getWidth() : 0;
+            final int labelHeight = label != null ? label.getHeight() : 0;
+            final int gap = icon != null && label != null ? drawOnlyIconGap : 0;
+
+            final int iconLeft;
+            final int iconTop;
+            final int labelLeft;
+            final int labelTop;
+            if (inlineLabel) {
+                final int start = centerX - (iconWidth + gap + labelWidth) / 2;
+                iconLeft = rtl ? start + gap + labelWidth : start;
+                labelLeft = rtl ? start : start + iconWidth + gap;
+                iconTop = centerY - iconHeight / 2;
+                labelTop = centerY - labelHeight / 2;
+            } else {
+                final int top = centerY - (iconHeight + gap + labelHeight) / 2;
+                iconLeft = centerX - iconWidth / 2;
+                labelLeft = centerX - labelWidth / 2;
+                iconTop = top;
+                labelTop = top + iconHeight + gap;
+            }
+
+            final float fraction = getTabFraction(position);
+            final float scale = getTabSizeByFraction(fraction);
+            if (icon != null) {
+                tab.iconTint.setTint(getIconColorByFraction(fraction));
+                icon.setBounds(iconLeft, iconTop, iconLeft + iconWidth, iconTop + iconHeight);
+                final int saveCount = canvas.save();
+                canvas.scale(scale, scale, iconLeft + iconWidth / 2f, iconTop + iconHeight / 2f);
+                icon.draw(canvas);
+                canvas.restoreToCount(saveCount);
+            }
+            if (label != null) {
+                // The layout draws with labelPaint, so color and weight can change per tab
+                labelPaint.setColor(getTextColorByFraction(fraction));
+                if (isSelectedTextBold) {
+                    labelPaint.setFakeBoldText(scale > getBoldTextThreshold());
+                }
+                final int saveCount = canvas.save();
+                canvas.scale(scale, scale, labelLeft + labelWidth / 2f, labelTop + labelHeight / 2f);
+                canvas.translate(labelLeft, labelTop);
+                label.draw(canvas);
+                canvas.restoreToCount(saveCount);
+            }
+
+            final BadgeDrawable badge = tab.badge;
+            if (badge != null && (icon != null || label != null)) {
+                // Anchored like TabView anchors it: to the icon if there is one, else to the label
+                if (icon != null) {
+                    drawOnlyBounds.set(iconLeft, iconTop, iconLeft + iconWidth, iconTop + iconHeight);
+                } else {
+                    drawOnlyBounds.set(labelLeft, labelTop, labelLeft + labelWidth, labelTop + labelHeight);
+                }
+                if (badge.getCallback() != this) {
+                    badge.setCallback(this);
+                }
+                badge.updateBadgeCoordinates(drawOnlyBounds);
+                badge.draw(canvas);
+            }
+        }
+
+        /** Returns the single line label of {@code tab}, ellipsized to {@code availableWidth}. */
+        @NonNull
+        @SuppressWarnings("deprecation")
+        private Layout getLabelLayout(@NonNull Tab tab, int availableWidth) {
+            Layout layout = tab.labelLayout;
+            if (layout != null && tab.labelWidth == availableWidth) {
+                return layout;
+            }
+            final CharSequence text = tab.labelText != null ? tab.labelText : tab.text;
+            final float desiredWidth =
+                    TextMeasureCache.getTextWidth(text, labelPaint, getResources().getDisplayMetrics().density);
+            final CharSequence label =
+                    desiredWidth > availableWidth
+                            ? TextUtils.ellipsize(text, labelPaint, Math.max(availableWidth, 0), TextUtils.TruncateAt.END)
+                            : text;
+            final int width = (int) Math.ceil(Math.min(desiredWidth, Math.max(availableWidth, 0)));
+            layout =
+                    new StaticLayout(
+                            label, labelPaint, width, Layout.Alignment.ALIGN_CENTER, 1f, 0f, false);
+            tab.labelLayout = layout;
+            tab.labelWidth = availableWidth;
+            return layout;
+        }
+
+        /**
+         * Returns how far the tab at {@code position} is selected, the fraction the TabView path
+         * passes to {@code updateTabColor} and {@code updateTabSize}.
+         */
+        private float getTabFraction(int position) {
+            if (animationTargetPosition >= 0 && animationTargetPosition != selectedPosition) {
+                if (position == animationTargetPosition) {
+                    return animationFraction;
+                }
+                return position == selectedPosition ? 1f - animationFraction : 0f;
+            }
+            if (position == selectedPosition) {
+                return 1f - selectionOffset;
+            }
+            return position == selectedPosition + 1 ? selectionOffset : 0f;
+        }
+
+        @Override
+        protected boolean verifyDrawable(@NonNull Drawable who) {
+            // Badges of TabViews and draw-only tabs alike are drawn by the strip
+            return super.verifyDrawable(who) || who instanceof BadgeDrawable;
+        }
+
+        @Override
+        public boolean onTouchEvent(MotionEvent event) {
+            if (!drawOnlyTabsActive) {
+                return super.onTouchEvent(event);
+            }
+            switch (event.getActionMasked()) {
+                case MotionEvent.ACTION_DOWN:
+                    pressedPosition = geometry.positionAt((int) event.getX());
+                    return pressedPosition != Tab.INVALID_POSITION;
+                case MotionEvent.ACTION_UP:
+                    final int position = geometry.positionAt((int) event.getX());
+                    if (position != Tab.INVALID_POSITION
+                            && position == pressedPosition
+                            && position < tabs.size()) {
+                        playSoundEffect(SoundEffectConstants.CLICK);
+                        tabs.get(position).select();
+                    }
+                    pressedPosition = Tab.INVALID_POSITION;
+                    return true;
+                case MotionEvent.ACTION_CANCEL:
+                    pressedPosition = Tab.INVALID_POSITION;
+                    return true;
+                default:
+                    return pressedPosition != Tab.INVALID_POSITION;
+            }
+        }
+
+        @Override
+        protected boolean dispatchHoverEvent(MotionEvent event) {
+            if (accessibilityHelper != null && accessibilityHelper.dispatchHoverEvent(event)) {
+                return true;
+            }
+            return super.dispatchHoverEvent(event);
+        }
+
+        /**
+         * Returns the wrapped selection indicator. The wrapper is only recreated when the indicator
+         * drawable changes, since {@link DrawableCompat#wrap(Drawable)} allocates before API 23.
+         */
+        @NonNull
+        private Drawable getSelectedIndicator() {
+            final Drawable source =
+                    tabSelectedIndicator != null ? tabSelectedIndicator : defaultSelectionIndicator;
+            if (selectedIndicator == null || selectedIndicatorSource != source) {
+                selectedIndicatorSource = source;
+                selectedIndicator = DrawableCompat.wrap(source);
+                selectedIndicatorTinted = false;
+            }
+            return selectedIndicator;
+        }
+
+        /**
+         * The selection indicator on its own render node. It is laid out at the indicator size and
+         * moved through its translation, so only its size changing records it again.
+         */
+        private final class IndicatorLayerView extends View {
+            @Nullable private Drawable indicator;
+
+            IndicatorLayerView(@NonNull Context context) {
+                super(context);
+                setWillNotDraw(false);
+            }
+
+            void setIndicator(@NonNull Drawable indicator) {
+                if (this.indicator != indicator) {
+                    this.indicator = indicator;
+                    invalidate();
+                }
+            }
+
+            void place(int left, int top, int right, int bottom) {
+                // A no-op unless the size changed
+                layout(0, 0, right - left, bottom - top);
+                setTranslationX(left);
+                setTranslationY(top);
+            }
+
+            @Override
+            protected void onDraw(@NonNull Canvas canvas) {
+                final Drawable indicator = this.indicator;
+                if (indicator != null) {
+                    // The strip sets the bounds to its own coordinates when it draws the indicator
+                    indicator.setBounds(0, 0, getWidth(), getHeight());
+                    indicator.draw(canvas);
+                }
+            }
+        }
+
+        /** Exposes draw-only tabs to accessibility services, one virtual view per tab position. */
+        private final class TabAccessibilityHelper extends ExploreByTouchHelper {
+
+            TabAccessibilityHelper(@NonNull View host) {
+                super(host);
+            }
+
+            @Override
+            protected int getVirtualViewAt(float x, float y) {
+                final int position = geometry.positionAt((int) x);
+                return isDrawnTab(position) ? position : INVALID_ID;
+            }
+
+            @Override
+            protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+                // Only the tabs in the viewport, like drawTabs(), so the tree doesn't grow with
+                // the tab count. Scrolling sends a scroll event which refreshes it
+                final int count = Math.min(geometry.getCount(), tabs.size());
+                if (count == 0) {
+                    return;
+                }
+                final int viewportLeft = getViewportLeft();
+                final int viewportRight = viewportLeft + getViewportWidth();
+                final int first = geometry.firstVisible(viewportLeft, viewportRight);
+                final int last = geometry.lastVisible(viewportLeft, viewportRight);
+                for (int i = Math.max(first, 0); i <= last && i < count; i++) {
+                    if (tabs.get(i).view == null) {
+                        virtualViewIds.add(i);
+                    }
+                }
+            }
+
+            @Override
+            protected void onPopulateNodeForVirtualView(
+                    int virtualViewId, @NonNull AccessibilityNodeInfoCompat node) {
+                if (!isDrawnTab(virtualViewId)) {
+                    // Stale id, the node still needs a description and bounds
+                    node.setContentDescription("");
+                    drawOnlyBounds.setEmpty();
+                    node.setBoundsInParent(drawOnlyBounds);
+                    return;
+                }
+                final Tab tab = tabs.get(virtualViewId);
+                final CharSequence contentDescription = tab.getContentDescription();
+                node.setContentDescription(contentDescription != null ? contentDescription : "");
+                node.setClassName(ActionBar.Tab.class.getName());
+                node.setClickable(true);
+                node.setSelected(tab.isSelected());
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+                drawOnlyBounds.set(
+                        geometry.getLeft(virtualViewId),
+                        getPaddingTop(),
+                        geometry.getRight(virtualViewId),
+                        getHeight() - getPaddingBottom());
+                node.setBoundsInParent(drawOnlyBounds);
+            }
+
+            @Override
+            protected boolean onPerformActionForVirtualView(
+                    int virtualViewId, int action, @Nullable Bundle arguments) {
+                if (action == AccessibilityNodeInfoCompat.ACTION_CLICK && isDrawnTab(virtualViewId)) {
+                    tabs.get(virtualViewId).select();
+                    sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+                    return true;
+                }
+                return false;
+            }
+
+            private boolean isDrawnTab(int position) {
+                return geometry.contains(position)
+                        && position < tabs.size()
+                        && tabs.get(position).view == null;
+            }
         }
     }
 
@@ -3162,23 +5062,28 @@ public class NiftyTabLayout extends HorizontalScrollView {
 
 
     private float getLeftInterpolation(float input) {
-        return (float) Math.pow(input, 4f);
+        return TabInterpolator.leftInterpolation(input);
     }
 
     private float getRightInterpolation(float input){
-        return (float)(1.0f - Math.pow((1.0f - input), 4f));
+        return TabInterpolator.rightInterpolation(input);
     }
 
     private int getTextColorByFraction(float fraction){
-        return Integer.parseInt(String.valueOf(textColorEvaluator.evaluate(fraction,unSelectedTextColor, selectedTextColor)));
+        return textColorInterpolator.colorAt(fraction);
     }
 
     private int getIconColorByFraction(float fraction){
-        return Integer.parseInt(String.valueOf(iconColorEvaluator.evaluate(fraction,unSelectedIconColor , selectedIconColor)));
+        return iconColorInterpolator.colorAt(fraction);
     }
 
     private float getTabSizeByFraction(float fraction){
-        return Float.parseFloat(String.valueOf(textSizeEvaluator.evaluate(fraction,unSelectedTextRadio,selectedTextRadio)));
+        return TabInterpolator.lerp(unSelectedTextRadio, selectedTextRadio, fraction);
+    }
+
+    /** Returns the tab scale above which the label is drawn bold, see {@link #isSelectedTextBold}. */
+    private float getBoldTextThreshold() {
+        return Math.min(selectedTextRadio,unSelectedTextRadio) + Math.abs(selectedTextRadio - unSelectedTextRadio)/2f;
     }
 
     public static int lerp(int startValue, int endValue, float fraction) {
@@ -1,5 +1,7 @@
 package com.litao.android.lib;
 
+import android.util.LongSparseArray;
+
 import java.lang.ref.WeakReference;
 
 import androidx.annotation.NonNull;
@@ -37,6 +39,10 @@ public final class NiftyTabLayoutMediator {
     /**
      * A callback interface that must be implemented to set the text and styling of newly created
      * tabs.
+     *
+     * <p>With auto refresh enabled, tabs are only configured again for pages the adapter reports
+     * as inserted or changed. Like a {@link RecyclerView.ViewHolder}, a tab that only shifted
+     * position keeps its configuration.
      */
     public interface TabConfigurationStrategy {
         /**
@@ -139,22 +145,149 @@ public final class NiftyTabLayoutMediator {
 
     @SuppressWarnings("WeakerAccess")
     void populateTabsFromPagerAdapter() {
+        tabLayout.beginTabTransaction();
         tabLayout.removeAllTabs();
-
         if (adapter != null) {
             int adapterCount = adapter.getItemCount();
             for (int i = 0; i < adapterCount; i++) {
-                NiftyTabLayout.Tab tab = tabLayout.newTab();
-                tabConfigurationStrategy.onConfigureTab(tab, i);
-                tabLayout.addTab(tab, false);
+                tabLayout.addTab(newConfiguredTab(i), false);
             }
+        }
+        tabLayout.commitTabTransaction();
+
+        if (adapter != null) {
             // Make sure we reflect the currently set ViewPager item
-            if (adapterCount > 0) {
-                int lastItem = tabLayout.getTabCount() - 1;
-                int currItem = Math.min(viewPager.getCurrentItem(), lastItem);
-                if (currItem != tabLayout.getSelectedTabPosition()) {
-                    tabLayout.selectTab(tabLayout.getTabAt(currItem));
-                }
+            selectCurrentItem();
+        }
+    }
+
+    /**
+     * Rebuilds the tabs after the whole data set changed. With stable ids, tabs of items which are
+     * still present are kept and moved in place instead of being recreated.
+     */
+    void updateTabsFromPagerAdapter() {
+        if (adapter == null || !adapter.hasStableIds()) {
+            populateTabsFromPagerAdapter();
+            return;
+        }
+
+        final int tabCount = tabLayout.getTabCount();
+        final LongSparseArray<NiftyTabLayout.Tab> previousTabs = new LongSparseArray<>(tabCount);
+        for (int i = 0; i < tabCount; i++) {
+            final NiftyTabLayout.Tab tab = tabLayout.getTabAt(i);
+            if (tab != null && tab.itemId != RecyclerView.NO_ID) {
+                previousTabs.put(tab.itemId, tab);
+            }
+        }
+
+        tabLayout.beginTabTransaction();
+        // Tabs before position i are final, everything else is behind them
+        final int adapterCount = adapter.getItemCount();
+        for (int i = 0; i < adapterCount; i++) {
+            final long itemId = adapter.getItemId(i);
+            final NiftyTabLayout.Tab tab = itemId != RecyclerView.NO_ID ? previousTabs.get(itemId) : null;
+            if (tab == null) {
+                tabLayout.addTab(newConfiguredTab(i), i, false);
+                continue;
+            }
+            previousTabs.remove(itemId);
+            tabLayout.moveTab(tab.getPosition(), i);
+            tabConfigurationStrategy.onConfigureTab(tab, i);
+        }
+
+        // Whatever is left belongs to removed items
+        for (int i = tabLayout.getTabCount() - 1; i >= adapterCount; i--) {
+            tabLayout.removeTabAt(i, false);
+        }
+        tabLayout.commitTabTransaction();
+        selectCurrentItemIfNone();
+    }
+
+    /** Adds and configures tabs for pages inserted at {@code positionStart}. */
+    void insertTabs(int positionStart, int itemCount) {
+        if (adapter == null || positionStart > tabLayout.getTabCount()) {
+            populateTabsFromPagerAdapter();
+            return;
+        }
+        tabLayout.beginTabTransaction();
+        for (int i = positionStart, z = positionStart + itemCount; i < z; i++) {
+            tabLayout.addTab(newConfiguredTab(i), i, false);
+        }
+        tabLayout.commitTabTransaction();
+        selectCurrentItemIfNone();
+    }
+
+    /** Removes the tabs of pages removed at {@code positionStart}. */
+    void removeTabs(int positionStart, int itemCount) {
+        if (positionStart + itemCount > tabLayout.getTabCount()) {
+            populateTabsFromPagerAdapter();
+            return;
+        }
+        tabLayout.beginTabTransaction();
+        for (int i = 0; i < itemCount; i++) {
+            tabLayout.removeTabAt(positionStart, false);
+        }
+        tabLayout.commitTabTransaction();
+        selectCurrentItemIfNone();
+    }
+
+    /** Moves the tabs of {@code itemCount} pages so that the first one ends up at {@code toPosition}. */
+    void moveTabs(int fromPosition, int toPosition, int itemCount) {
+        final int tabCount = tabLayout.getTabCount();
+        if (fromPosition + itemCount > tabCount || toPosition + itemCount > tabCount) {
+            populateTabsFromPagerAdapter();
+            return;
+        }
+        tabLayout.beginTabTransaction();
+        for (int i = 0; i < itemCount; i++) {
+            if (fromPosition > toPosition) {
+                tabLayout.moveTab(fromPosition + i, toPosition + i);
+            } else {
+                tabLayout.moveTab(fromPosition, toPosition + itemCount - 1);
+            }
+        }
+        tabLayout.commitTabTransaction();
+    }
+
+    /** Configures the tabs of pages changed at {@code positionStart} again. */
+    void changeTabs(int positionStart, int itemCount) {
+        if (adapter == null || positionStart + itemCount > tabLayout.getTabCount()) {
+            populateTabsFromPagerAdapter();
+            return;
+        }
+        final boolean stableIds = adapter.hasStableIds();
+        for (int i = positionStart, z = positionStart + itemCount; i < z; i++) {
+            final NiftyTabLayout.Tab tab = tabLayout.getTabAt(i);
+            if (tab != null) {
+                tab.itemId = stableIds ? adapter.getItemId(i) : RecyclerView.NO_ID;
+                tabConfigurationStrategy.onConfigureTab(tab, i);
+            }
+        }
+    }
+
+    @NonNull
+    private NiftyTabLayout.Tab newConfiguredTab(int position) {
+        final NiftyTabLayout.Tab tab = tabLayout.newTab();
+        if (adapter != null && adapter.hasStableIds()) {
+            tab.itemId = adapter.getItemId(position);
+        }
+        tabConfigurationStrategy.onConfigureTab(tab, position);
+        return tab;
+    }
+
+    private void selectCurrentItemIfNone() {
+        if (tabLayout.getSelectedTabPosition() == -1) {
+            selectCurrentItem();
+        }
+    }
+
+    private void selectCurrentItem() {
+        final int tabCount = tabLayout.getTabCount();
+        if (tabCount > 0) {
+            int lastItem = tabCount - 1;
+            int currItem = Math.min(viewPager.getCurrentItem(), lastItem);
+            if (currItem != tabLayout.getSelectedTabPosition()) {
+                tabLayout.selectTab(tabLayout.getTabAt(currItem));
             }
         }
     }
@@ -256,32 +389,32 @@ public final class NiftyTabLayoutMediator {
 
         @Override
         public void onChanged() {
-            populateTabsFromPagerAdapter();
+            updateTabsFromPagerAdapter();
         }
 
         @Override
         public void onItemRangeChanged(int positionStart, int itemCount) {
-            populateTabsFromPagerAdapter();
+            changeTabs(positionStart, itemCount);
         }
 
         @Override
         public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
-            populateTabsFromPagerAdapter();
+            changeTabs(positionStart, itemCount);
         }
 
         @Override
         public void onItemRangeInserted(int positionStart, int itemCount) {
-            populateTabsFromPagerAdapter();
+            insertTabs(positionStart, itemCount);
         }
 
         @Override
         public void onItemRangeRemoved(int positionStart, int itemCount) {
-            populateTabsFromPagerAdapter();
+            removeTabs(positionStart, itemCount);
         }
 
         @Override
         public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
-            populateTabsFromPagerAdapter();
+            moveTabs(fromPosition, toPosition, itemCount);
         }
     }
 }
@@ -0,0 +1,66 @@
+package com.litao.android.lib;
+
+import android.graphics.PorterDuff;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.graphics.drawable.DrawableCompat;
+
+/**
+ * The tint target of a {@link NiftyTabLayout.Tab} icon.
+ *
+ * <p>The icon is wrapped and mutated exactly once, when it is set on the tab. Updating the tint
+ * while scrolling only changes a color, and is skipped entirely when the color did not change
+ * since the last frame.
+ */
+class TabIconTint {
+
+    @Nullable private Drawable drawable;
+    @ColorInt private int tintColor;
+    private boolean tinted;
+
+    /**
+     * Sets the icon to tint. The given drawable is wrapped and mutated so the tint does not leak
+     * into other users of the same drawable state.
+     *
+     * @param source the tab icon, or {@code null} to clear
+     */
+    void setSource(@Nullable Drawable source) {
+        drawable = source != null ? mutate(source) : null;
+        tinted = false;
+    }
+
+    /** Returns the mutated, tintable icon, or {@code null} if the tab has no icon. */
+    @Nullable
+    Drawable getDrawable() {
+        return drawable;
+    }
+
+    /**
+     * Applies the given tint color to the icon.
+     *
+     * @return whether the drawable was actually updated
+     */
+    boolean setTint(@ColorInt int color) {
+        if (drawable == null || (tinted && tintColor == color)) {
+            return false;
+        }
+        tintColor = color;
+        tinted = true;
+        applyTint(drawable, color);
+        return true;
+    }
+
+    @NonNull
+    Drawable mutate(@NonNull Drawable source) {
+        Drawable icon = DrawableCompat.wrap(source).mutate();
+        DrawableCompat.setTintMode(icon, PorterDuff.Mode.SRC_ATOP);
+        return icon;
+    }
+
+    void applyTint(@NonNull Drawable icon, @ColorInt int color) {
+        DrawableCompat.setTint(icon, color);
+    }
+}
@@ -0,0 +1,189 @@
+package com.litao.android.lib;
+
+import android.content.res.ColorStateList;
+
+import java.util.Arrays;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Primitive interpolation between the unselected and selected values of a tab.
+ *
+ * <p>Replaces the boxed {@link android.animation.ArgbEvaluator} / {@link
+ * android.animation.FloatEvaluator} pair that used to run twice per tab on every scroll frame.
+ * Colors are blended the same way {@link android.animation.ArgbEvaluator} does on API 23+ (in
+ * linear space), optionally through a lookup table that is only rebuilt when the color pair
+ * changes.
+ */
+final class TabInterpolator {
+
+    /** Number of steps stored in a color lookup table. */
+    static final int LOOKUP_TABLE_SIZE = 256;
+
+    @ColorInt private int startColor;
+    @ColorInt private int endColor;
+
+    private boolean lookupTableEnabled;
+    private boolean lookupTableDirty = true;
+    @NonNull private final int[] lookupTable = new int[LOOKUP_TABLE_SIZE];
+    @Nullable private ColorStateList[] colorStateLists;
+
+    TabInterpolator(@ColorInt int startColor, @ColorInt int endColor, boolean lookupTableEnabled) {
+        this.startColor = startColor;
+        this.endColor = endColor;
+        this.lookupTableEnabled = lookupTableEnabled;
+    }
+
+    /**
+     * Updates the color pair. The lookup table is only invalidated when one of the colors actually
+     * changes.
+     *
+     * @param startColor color at fraction 0 (unselected)
+     * @param endColor color at fraction 1 (selected)
+     */
+    void setColors(@ColorInt int startColor, @ColorInt int endColor) {
+        if (this.startColor != startColor || this.endColor != endColor) {
+            this.startColor = startColor;
+            this.endColor = endColor;
+            lookupTableDirty = true;
+        }
+    }
+
+    void setLookupTableEnabled(boolean enabled) {
+        lookupTableEnabled = enabled;
+    }
+
+    boolean isLookupTableEnabled() {
+        return lookupTableEnabled;
+    }
+
+    /**
+     * Returns the color at the given fraction between the unselected and selected color.
+     *
+     * @param fraction value in [0, 1], values outside of this range are clamped
+     */
+    @ColorInt
+    int colorAt(float fraction) {
+        if (!lookupTableEnabled) {
+            return argb(fraction, startColor, endColor);
+        }
+        if (lookupTableDirty) {
+            rebuildLookupTable();
+        }
+        return lookupTable[lookupIndex(fraction)];
+    }
+
+    /**
+     * Returns the color at the given fraction as a {@link ColorStateList}. With the lookup table
+     * enabled the instances are cached per table entry, so that {@link
+     * android.widget.TextView#setTextColor(ColorStateList)} can be called every frame without
+     * allocating. Without it every call allocates, colors blended per frame have no bounded set of
+     * instances to cache.
+     */
+    @NonNull
+    ColorStateList colorStateListAt(float fraction) {
+        if (!lookupTableEnabled) {
+            return ColorStateList.valueOf(argb(fraction, startColor, endColor));
+        }
+        if (lookupTableDirty) {
+            rebuildLookupTable();
+        }
+        if (colorStateLists == null) {
+            colorStateLists = new ColorStateList[LOOKUP_TABLE_SIZE];
+        }
+        final int index = lookupIndex(fraction);
+        ColorStateList colorStateList = colorStateLists[index];
+        if (colorStateList == null) {
+            colorStateList = colorStateLists[index] = ColorStateList.valueOf(lookupTable[index]);
+        }
+        return colorStateList;
+    }
+
+    private void rebuildLookupTable() {
+        final float step = 1f / (LOOKUP_TABLE_SIZE - 1);
+        for (int i = 0; i < LOOKUP_TABLE_SIZE; i++) {
+            lookupTable[i] = argb(i * step, startColor, endColor);
+        }
+        if (colorStateLists != null) {
+            Arrays.fill(colorStateLists, null);
+        }
+        lookupTableDirty = false;
+    }
+
+    static int lookupIndex(float fraction) {
+        if (!(fraction > 0f)) {
+            return 0;
+        }
+        if (fraction >= 1f) {
+            return LOOKUP_TABLE_SIZE - 1;
+        }
+        return (int) (fraction * (LOOKUP_TABLE_SIZE - 1) + 0.5f);
+    }
+
+    /**
+     * Blends two ARGB colors without boxing. Equivalent to {@link
+     * android.animation.ArgbEvaluator#evaluate(float, Object, Object)} on API 23+.
+     */
+    @ColorInt
+    static int argb(float fraction, @ColorInt int startValue, @ColorInt int endValue) {
+        if (!(fraction > 0f)) {
+            return startValue;
+        }
+        if (fraction >= 1f) {
+            return endValue;
+        }
+
+        float startA = ((startValue >> 24) & 0xff) / 255.0f;
+        float startR = ((startValue >> 16) & 0xff) / 255.0f;
+        float startG = ((startValue >> 8) & 0xff) / 255.0f;
+        float startB = (startValue & 0xff) / 255.0f;
+
+        float endA = ((endValue >> 24) & 0xff) / 255.0f;
+        float endR = ((endValue >> 16) & 0xff) / 255.0f;
+        float endG = ((endValue >> 8) & 0xff) / 255.0f;
+        float endB = (endValue & 0xff) / 255.0f;
+
+        // convert from sRGB to linear
+        startR = (float) Math.pow(startR, 2.2);
+        startG = (float) Math.pow(startG, 2.2);
+        startB = (float) Math.pow(startB, 2.2);
+
+        endR = (float) Math.pow(endR, 2.2);
+        endG = (float) Math.pow(endG, 2.2);
+        endB = (float) Math.pow(endB, 2.2);
+
+        // compute the interpolated color in linear space
+        float a = startA + fraction * (endA - startA);
+        float r = startR + fraction * (endR - startR);
+        float g = startG + fraction * (endG - startG);
+        float b = startB + fraction * (endB - startB);
+
+        // convert back to sRGB in the [0..255] range
+        a = a * 255.0f;
+        r = (float) Math.pow(r, 1.0 / 2.2) * 255.0f;
+        g = (float) Math.pow(g, 1.0 / 2.2) * 255.0f;
+        b = (float) Math.pow(b, 1.0 / 2.2) * 255.0f;
+
+        return Math.round(a) << 24 | Math.round(r) << 16 | Math.round(g) << 8 | Math.round(b);
+    }
+
+    /** Indicator left edge easing, {@code input^4}. */
+    static float leftInterpolation(float input) {
+        final float squared = input * input;
+        return squared * squared;
+    }
+
+    /** Indicator right edge easing, {@code 1 - (1 - input)^4}. */
+    static float rightInterpolation(float input) {
+        final float inverse = 1f - input;
+        final float squared = inverse * inverse;
+        return 1f - squared * squared;
+    }
+
+    /** Linear interpolation between two floats, used for the tab scale ratios. */
+    static float lerp(float startValue, float endValue, float fraction) {
+        return startValue + fraction * (endValue - startValue);
+    }
+}
@@ -0,0 +1,177 @@
+package com.litao.android.lib;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Work done by a {@link NiftyTabLayout}, aggregated over one swipe.
+ *
+ * <p>A swipe starts with the first {@link NiftyTabLayout#setScrollPosition(int, float, boolean)}
+ * call with a non-zero offset and ends when the offset returns to zero. Work done outside of a
+ * swipe, such as a layout pass after tabs were added, is included in the next report.
+ *
+ * <p>Times are wall clock times in nanoseconds and are inclusive: the time spent measuring the tab
+ * strip includes the time spent measuring its TabViews.
+ *
+ * <p>The instance passed to {@link NiftyTabLayout.OnMetricsListener} is reused for the next swipe,
+ * copy the values out if they are needed after the callback returns.
+ *
+ * @see NiftyTabLayout#setOnMetricsListener(NiftyTabLayout.OnMetricsListener)
+ */
+public final class TabLayoutMetrics {
+
+    private int frameCount;
+    private long scrollPositionNanos;
+    private long indicatorUpdateNanos;
+    private int indicatorUpdateCount;
+    private long stripMeasureNanos;
+    private int stripMeasureCount;
+    private long tabMeasureNanos;
+    private int tabMeasureCount;
+    private int invalidationCount;
+    private int tabViewsTouched;
+    private int poolHits;
+    private int poolMisses;
+
+    TabLayoutMetrics() {}
+
+    /** Returns the number of {@code setScrollPosition} calls, one per frame while swiping. */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /** Returns the time spent in {@code setScrollPosition}. */
+    public long getScrollPositionNanos() {
+        return scrollPositionNanos;
+    }
+
+    /** Returns the time spent moving the indicator and updating the tabs under it. */
+    public long getIndicatorUpdateNanos() {
+        return indicatorUpdateNanos;
+    }
+
+    /** Returns the number of indicator updates. */
+    public int getIndicatorUpdateCount() {
+        return indicatorUpdateCount;
+    }
+
+    /** Returns the time spent measuring the tab strip. */
+    public long getStripMeasureNanos() {
+        return stripMeasureNanos;
+    }
+
+    /** Returns the number of tab strip measure passes. */
+    public int getStripMeasureCount() {
+        return stripMeasureCount;
+    }
+
+    /** Returns the time spent measuring TabViews. */
+    public long getTabMeasureNanos() {
+        return tabMeasureNanos;
+    }
+
+    /** Returns the number of TabView measure passes. */
+    public int getTabMeasureCount() {
+        return tabMeasureCount;
+    }
+
+    /** Returns the number of times the tab strip was invalidated. */
+    public int getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /** Returns the number of TabView color and scale updates. */
+    public int getTabViewsTouched() {
+        return tabViewsTouched;
+    }
+
+    /** Returns the number of Tabs and TabViews taken from a pool. */
+    public int getPoolHits() {
+        return poolHits;
+    }
+
+    /** Returns the number of Tabs and TabViews created because their pool was empty. */
+    public int getPoolMisses() {
+        return poolMisses;
+    }
+
+    void addFrame(long nanos) {
+        frameCount++;
+        scrollPositionNanos += nanos;
+    }
+
+    void addIndicatorUpdate(long nanos) {
+        indicatorUpdateCount++;
+        indicatorUpdateNanos += nanos;
+    }
+
+    void addStripMeasure(long nanos) {
+        stripMeasureCount++;
+        stripMeasureNanos += nanos;
+    }
+
+    void addTabMeasure(long nanos) {
+        tabMeasureCount++;
+        tabMeasureNanos += nanos;
+    }
+
+    void addInvalidation() {
+        invalidationCount++;
+    }
+
+    void addTabViewsTouched(int count) {
+        tabViewsTouched += count;
+    }
+
+    void addPoolAcquire(boolean hit) {
+        if (hit) {
+            poolHits++;
+        } else {
+            poolMisses++;
+        }
+    }
+
+    void reset() {
+        frameCount = 0;
+        scrollPositionNanos = 0;
+        indicatorUpdateNanos = 0;
+        indicatorUpdateCount = 0;
+        stripMeasureNanos = 0;
+        stripMeasureCount = 0;
+        tabMeasureNanos = 0;
+        tabMeasureCount = 0;
+        invalidationCount = 0;
+        tabViewsTouched = 0;
+        poolHits = 0;
+        poolMisses = 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "TabLayoutMetrics{frames="
+                + frameCount
+                + ", scrollPositionNanos="
+                + scrollPositionNanos
+                + ", indicatorUpdates="
+                + indicatorUpdateCount
+                + ", indicatorUpdateNanos="
+                + indicatorUpdateNanos
+                + ", stripMeasures="
+                + stripMeasureCount
+                + ", stripMeasureNanos="
+                + stripMeasureNanos
+                + ", tabMeasures="
+                + tabMeasureCount
+                + ", tabMeasureNanos="
+                + tabMeasureNanos
+                + ", invalidations="
+                + invalidationCount
+                + ", tabViewsTouched="
+                + tabViewsTouched
+                + ", poolHits="
+                + poolHits
+                + ", poolMisses="
+                + poolMisses
+                + '}';
+    }
+}
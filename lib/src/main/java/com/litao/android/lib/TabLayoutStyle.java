@@ -0,0 +1,273 @@
+package com.litao.android.lib;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import androidx.annotation.AttrRes;
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
+import androidx.core.content.ContextCompat;
+
+/**
+ * The attributes of a {@link NiftyTabLayout}, resolved once. Dimensions are in pixels and colors
+ * are resolved against the theme they were obtained with.
+ *
+ * <p>Styles are immutable and cached per theme and style, so layouts sharing a style resolve its
+ * attributes and text appearance once instead of once per instance. Restyle a live layout, e.g.
+ * after switching to a dark theme, with {@link NiftyTabLayout#setStyle(TabLayoutStyle)}.
+ *
+ * @see #obtain(Context, int)
+ */
+public final class TabLayoutStyle {
+
+    private static final Object lock = new Object();
+
+    // Keyed by theme, then by the style attribute, default style attribute and default style
+    private static final WeakHashMap<Resources.Theme, Map<String, TabLayoutStyle>> cache =
+            new WeakHashMap<>();
+
+    // Package of the framework's attributes, android:layout_width and the like
+    private static final int ANDROID_PACKAGE_ID = 0x01;
+
+    final int indicatorHeight;
+    @ColorInt final int indicatorColor;
+    // Shared by the layouts using this style, each one gets its own drawable. A drawable without
+    // constant state can't be copied, styles holding one are not cached
+    @Nullable private final Drawable.ConstantState indicatorState;
+    @Nullable private final Drawable indicator;
+    final int indicatorGravity;
+    final boolean indicatorFullWidth;
+    final boolean indicatorLayered;
+    final int indicatorAnimationDuration;
+    final float indicatorWidthRatio;
+    final boolean tintIndicator;
+
+    final int paddingStart;
+    final int paddingTop;
+    final int paddingEnd;
+    final int paddingBottom;
+
+    @StyleRes final int textAppearance;
+    final float textSize;
+    final float textMultiLineSize;
+    @Nullable final ColorStateList textColors;
+
+    final int minWidth;
+    final int maxWidth;
+    final int scrollableMinWidth;
+    final int iconTabHeight;
+    final int backgroundResId;
+    final int contentInsetStart;
+    final int mode;
+    final int gravity;
+    final boolean inlineLabel;
+
+    final boolean selectedTextBold;
+    final float selectedTextRatio;
+    final float unselectedTextRatio;
+    @ColorInt final int selectedTextColor;
+    @ColorInt final int unselectedTextColor;
+    @ColorInt final int selectedIconColor;
+    @ColorInt final int unselectedIconColor;
+
+    final boolean stripVirtualized;
+    final boolean drawOnly;
+    final boolean inflateDefaultViews;
+    final boolean precomputeText;
+
+    private TabLayoutStyle(@NonNull Context context, @NonNull TypedArray a) {
+        indicatorHeight = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabIndicatorHeight, -1);
+        indicatorColor = a.getColor(R.styleable.LTTabLayout_ltTabIndicatorColor, 0);
+        final Drawable drawable = TabUtils.getDrawable(context, a, R.styleable.LTTabLayout_ltTabIndicator);
+        indicatorState = drawable != null ? drawable.getConstantState() : null;
+        indicator = indicatorState == null ? drawable : null;
+        indicatorGravity =
+                a.getInt(
+                        R.styleable.LTTabLayout_ltTabIndicatorGravity,
+                        NiftyTabLayout.INDICATOR_GRAVITY_BOTTOM);
+        indicatorFullWidth = a.getBoolean(R.styleable.LTTabLayout_ltTabIndicatorFullWidth, false);
+        indicatorLayered = a.getBoolean(R.styleable.LTTabLayout_ltTabIndicatorLayered, false);
+        indicatorAnimationDuration =
+                a.getInt(
+                        R.styleable.LTTabLayout_ltTabIndicatorAnimationDuration,
+                        NiftyTabLayout.ANIMATION_DURATION);
+        indicatorWidthRatio =
+                a.getFloat(
+                        R.styleable.LTTabLayout_ltTabIndicatorWidthRatio,
+                        NiftyTabLayout.DEFAULT_INDICATOR_WIDTH_RATIO);
+        tintIndicator =
+                a.getBoolean(
+                        R.styleable.LTTabLayout_ltEnableTintIndicator,
+                        NiftyTabLayout.DEFAULT_ENABLE_TINT_INDICATOR);
+
+        final int padding = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabPadding, 0);
+        paddingStart = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabPaddingStart, padding);
+        paddingTop = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabPaddingTop, padding);
+        paddingEnd = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabPaddingEnd, padding);
+        paddingBottom = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabPaddingBottom, padding);
+
+        textAppearance =
+                a.getResourceId(R.styleable.LTTabLayout_ltTabTextAppearance, R.style.LTWidget_TabLayout_Tab);
+
+        // Text colors/sizes come from the text appearance first
+        final TypedArray ta =
+                context.obtainStyledAttributes(
+                        textAppearance, androidx.appcompat.R.styleable.TextAppearance);
+        ColorStateList colors;
+        try {
+            textSize =
+                    ta.getDimensionPixelSize(
+                            androidx.appcompat.R.styleable.TextAppearance_android_textSize, 0);
+            colors =
+                    TabUtils.getColorStateList(
+                            context, ta, androidx.appcompat.R.styleable.TextAppearance_android_textColor);
+        } finally {
+            ta.recycle();
+        }
+        if (a.hasValue(R.styleable.LTTabLayout_ltTabTextColor)) {
+            // If we have an explicit text color set, use it instead
+            colors = TabUtils.getColorStateList(context, a, R.styleable.LTTabLayout_ltTabTextColor);
+        }
+        textColors = colors;
+
+        minWidth = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabMinWidth, NiftyTabLayout.INVALID_WIDTH);
+        maxWidth = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabMaxWidth, NiftyTabLayout.INVALID_WIDTH);
+        iconTabHeight = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltIconTabHeight, 0);
+        backgroundResId = a.getResourceId(R.styleable.LTTabLayout_ltTabBackground, 0);
+        contentInsetStart = a.getDimensionPixelSize(R.styleable.LTTabLayout_ltTabContentStart, 0);
+        mode = a.getInt(R.styleable.LTTabLayout_ltTabMode, NiftyTabLayout.MODE_AUTO);
+        gravity = a.getInt(R.styleable.LTTabLayout_ltTabGravity, NiftyTabLayout.GRAVITY_FILL);
+        inlineLabel = a.getBoolean(R.styleable.LTTabLayout_ltTabInlineLabel, false);
+
+        selectedTextBold = a.getBoolean(R.styleable.LTTabLayout_isSelectedTextBold, true);
+        selectedTextRatio = a.getFloat(R.styleable.LTTabLayout_selectedTabTextRadio, 1f);
+        unselectedTextRatio = a.getFloat(R.styleable.LTTabLayout_unSelectedTabTextRadio, 0.8f);
+        selectedTextColor =
+                a.getColor(
+                        R.styleable.LTTabLayout_selectedTabTextColor,
+                        ContextCompat.getColor(context, R.color.comm_text_h1_color));
+        unselectedTextColor =
+                a.getColor(
+                        R.styleable.LTTabLayout_unSelectedTabTextColor,
+                        ContextCompat.getColor(context, R.color.comm_text_h2_color));
+        selectedIconColor = a.getColor(R.styleable.LTTabLayout_selectedIconTabColor, Color.TRANSPARENT);
+        unselectedIconColor =
+                a.getColor(
+                        R.styleable.LTTabLayout_unSelectedIconTabColor,
+                        ContextCompat.getColor(context, R.color.comm_text_h2_color));
+
+        stripVirtualized = a.getBoolean(R.styleable.LTTabLayout_ltTabStripVirtualized, false);
+        drawOnly = a.getBoolean(R.styleable.LTTabLayout_ltTabDrawOnly, false);
+        inflateDefaultViews = a.getBoolean(R.styleable.LTTabLayout_ltTabInflateDefaultViews, false);
+        precomputeText = a.getBoolean(R.styleable.LTTabLayout_ltTabPrecomputeText, false);
+
+        // TODO add attr for these
+        final Resources res = context.getResources();
+        textMultiLineSize = res.getDimensionPixelSize(R.dimen.tab_text_size_2line);
+        scrollableMinWidth = res.getDimensionPixelSize(R.dimen.tab_scrollable_min_width);
+    }
+
+    /**
+     * Returns the style {@code styleRes} resolved against the theme of {@code context}, e.g. {@code
+     * R.style.LTWidget_TabLayout} or an app style extending it.
+     */
+    @NonNull
+    public static TabLayoutStyle obtain(@NonNull Context context, @StyleRes int styleRes) {
+        return obtain(context, null, 0, styleRes);
+    }
+
+    /**
+     * Returns the style of a layout inflated with {@code attrs}. The result is cached unless the
+     * layout sets attributes of its own, besides {@code style}, or its indicator drawable can't be
+     * copied for each layout.
+     */
+    @NonNull
+    static TabLayoutStyle obtain(
+            @NonNull Context context,
+            @Nullable AttributeSet attrs,
+            @AttrRes int defStyleAttr,
+            @StyleRes int defStyleRes) {
+        if (attrs != null && hasAppAttributes(attrs)) {
+            return resolve(context, attrs, defStyleAttr, defStyleRes);
+        }
+        final int styleRes = attrs != null ? attrs.getStyleAttribute() : 0;
+        final String key = styleRes + ":" + defStyleAttr + ":" + defStyleRes;
+        final Resources.Theme theme = context.getTheme();
+        synchronized (lock) {
+            final Map<String, TabLayoutStyle> styles = cache.get(theme);
+            final TabLayoutStyle style = styles != null ? styles.get(key) : null;
+            if (style != null) {
+                return style;
+            }
+        }
+        final TabLayoutStyle style = resolve(context, attrs, defStyleAttr, defStyleRes);
+        if (style.indicator != null) {
+            // Caching would hand the same indicator drawable to every layout using the style
+            return style;
+        }
+        // Clears the cache on configuration changes
+        TabPools.registerCallbacks(context);
+        synchronized (lock) {
+            Map<String, TabLayoutStyle> styles = cache.get(theme);
+            if (styles == null) {
+                styles = new HashMap<>();
+                cache.put(theme, styles);
+            }
+            styles.put(key, style);
+        }
+        return style;
+    }
+
+    /**
+     * Drops every cached style, e.g. after the app changed a theme in place. Called automatically on
+     * a configuration change.
+     */
+    public static void clearCache() {
+        synchronized (lock) {
+            cache.clear();
+        }
+    }
+
+    @NonNull
+    private static TabLayoutStyle resolve(
+            @NonNull Context context,
+            @Nullable AttributeSet attrs,
+            @AttrRes int defStyleAttr,
+            @StyleRes int defStyleRes) {
+        final TypedArray a =
+                context.obtainStyledAttributes(attrs, R.styleable.LTTabLayout, defStyleAttr, defStyleRes);
+        try {
+            return new TabLayoutStyle(context, a);
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /** Returns whether {@code attrs} may set tab layout attributes directly. */
+    private static boolean hasAppAttributes(@NonNull AttributeSet attrs) {
+        for (int i = 0, z = attrs.getAttributeCount(); i < z; i++) {
+            final int nameResource = attrs.getAttributeNameResource(i);
+            if (nameResource != 0 && nameResource >>> 24 != ANDROID_PACKAGE_ID) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns a new selection indicator drawable, or null if the style has none. */
+    @Nullable
+    Drawable newIndicator(@NonNull Resources res) {
+        return indicatorState != null ? indicatorState.newDrawable(res) : indicator;
+    }
+}
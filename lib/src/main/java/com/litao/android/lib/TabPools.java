@@ -0,0 +1,404 @@
+package com.litao.android.lib;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Bundle;
+
+import com.litao.android.lib.badge.BadgeDrawable;
+import com.litao.android.lib.badge.BadgeGlyphAtlas;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Recycled {@link NiftyTabLayout.Tab}s and {@link NiftyTabLayout.TabView}s, shared by every {@link
+ * NiftyTabLayout} in the process, so that layouts which are recreated often, e.g. in fragments or
+ * list rows, reuse the TabViews of the layouts they replace.
+ *
+ * <p>A TabView keeps the {@link Context}, and with it the theme, it was created with, so TabViews
+ * are pooled per context and only handed to layouts using the same context. Pooled TabViews hold no
+ * tab, badge, custom view, icon or reference to their previous layout.
+ *
+ * <p>The pools of an activity are dropped when it is destroyed. All pools are trimmed when the
+ * system asks the application to release memory, see {@link #trimMemory(int)}.
+ */
+public final class TabPools {
+
+    /** Default number of recycled Tabs kept by the process. */
+    public static final int DEFAULT_MAX_TABS = 16;
+
+    /** Default number of recycled TabViews kept per context. */
+    public static final int DEFAULT_MAX_TAB_VIEWS_PER_CONTEXT = 12;
+
+    private static final Object lock = new Object();
+
+    private static int maxTabs = DEFAULT_MAX_TABS;
+    private static int maxTabViewsPerContext = DEFAULT_MAX_TAB_VIEWS_PER_CONTEXT;
+
+    private static final ArrayList<NiftyTabLayout.Tab> tabs = new ArrayList<>();
+    private static final Map<Context, TabViewPool> tabViewPools = new HashMap<>();
+
+    private static int tabHits;
+    private static int tabMisses;
+    private static int tabViewHits;
+    private static int tabViewMisses;
+
+    @Nullable private static Application registeredApplication;
+
+    private TabPools() {}
+
+    /** Sets the number of recycled Tabs kept by the process. */
+    public static void setMaxTabs(int max) {
+        synchronized (lock) {
+            maxTabs = Math.max(max, 0);
+            trimList(tabs, maxTabs);
+        }
+    }
+
+    public static int getMaxTabs() {
+        synchronized (lock) {
+            return maxTabs;
+        }
+    }
+
+    /**
+     * Sets the number of recycled TabViews kept per context. {@link
+     * NiftyTabLayout#prewarmTabViews(int)} may raise the limit of a single context above it while
+     * it pre-warms.
+     */
+    public static void setMaxTabViewsPerContext(int max) {
+        synchronized (lock) {
+            maxTabViewsPerContext = Math.max(max, 0);
+            for (TabViewPool pool : tabViewPools.values()) {
+                pool.capacity =
+                        pool.prewarms > 0
+                                ? Math.max(pool.capacity, maxTabViewsPerContext)
+                                : maxTabViewsPerContext;
+                trimList(pool.views, pool.capacity);
+            }
+        }
+    }
+
+    public static int getMaxTabViewsPerContext() {
+        synchronized (lock) {
+            return maxTabViewsPerContext;
+        }
+    }
+
+    /** Returns the number of Tabs taken from the pool. */
+    public static int getTabHits() {
+        synchronized (lock) {
+            return tabHits;
+        }
+    }
+
+    /** Returns the number of Tabs created because the pool was empty. */
+    public static int getTabMisses() {
+        synchronized (lock) {
+            return tabMisses;
+        }
+    }
+
+    /** Returns the number of TabViews taken from a pool. */
+    public static int getTabViewHits() {
+        synchronized (lock) {
+            return tabViewHits;
+        }
+    }
+
+    /** Returns the number of TabViews created because the pool of their context was empty. */
+    public static int getTabViewMisses() {
+        synchronized (lock) {
+            return tabViewMisses;
+        }
+    }
+
+    /** Resets the hit and miss counters. */
+    public static void resetStats() {
+        synchronized (lock) {
+            tabHits = 0;
+            tabMisses = 0;
+            tabViewHits = 0;
+            tabViewMisses = 0;
+        }
+    }
+
+    /**
+     * Releases pooled objects in response to {@link ComponentCallbacks2#onTrimMemory(int)}. This is
+     * called automatically once a NiftyTabLayout was created in an {@link Application}, apps with
+     * their own memory management may call it directly.
+     *
+     * <p>From {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} on everything is released, below
+     * that the pools are halved.
+     */
+    public static void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            clear();
+            return;
+        }
+        synchronized (lock) {
+            trimList(tabs, tabs.size() / 2);
+            for (TabViewPool pool : tabViewPools.values()) {
+                trimList(pool.views, pool.views.size() / 2);
+            }
+        }
+    }
+
+    /** Releases every pooled Tab and TabView. */
+    public static void clear() {
+        synchronized (lock) {
+            tabs.clear();
+            tabViewPools.clear();
+        }
+    }
+
+    @Nullable
+    static NiftyTabLayout.Tab acquireTab() {
+        synchronized (lock) {
+            final int size = tabs.size();
+            if (size == 0) {
+                tabMisses++;
+                return null;
+            }
+            tabHits++;
+            return tabs.remove(size - 1);
+        }
+    }
+
+    /** Pools a Tab which has been {@link NiftyTabLayout.Tab#reset() reset}. */
+    static boolean releaseTab(@NonNull NiftyTabLayout.Tab tab) {
+        synchronized (lock) {
+            if (tabs.size() >= maxTabs || tabs.contains(tab)) {
+                return false;
+            }
+            tabs.add(tab);
+            return true;
+        }
+    }
+
+    /** Returns a pooled TabView created with {@code context}, or null if there is none. */
+    @Nullable
+    static NiftyTabLayout.TabView acquireTabView(@NonNull Context context) {
+        synchronized (lock) {
+            final TabViewPool pool = tabViewPools.get(context);
+            final int size = pool != null ? pool.views.size() : 0;
+            if (size == 0) {
+                tabViewMisses++;
+                return null;
+            }
+            tabViewHits++;
+            return pool.views.remove(size - 1);
+        }
+    }
+
+    /** Pools a TabView which has been {@link NiftyTabLayout.TabView#recycle() recycled}. */
+    static boolean releaseTabView(@NonNull NiftyTabLayout.TabView tabView) {
+        final Context context = tabView.getContext();
+        if (isDestroyed(context)) {
+            return false;
+        }
+        registerCallbacks(context);
+        synchronized (lock) {
+            TabViewPool pool = tabViewPools.get(context);
+            if (pool == null) {
+                if (maxTabViewsPerContext == 0) {
+                    return false;
+                }
+                pool = new TabViewPool(maxTabViewsPerContext);
+                tabViewPools.put(context, pool);
+            }
+            if (pool.views.size() >= pool.capacity || pool.views.contains(tabView)) {
+                return false;
+            }
+            pool.views.add(tabView);
+            return true;
+        }
+    }
+
+    /**
+     * Marks the start of a pre-warm of the TabViews of {@code context}, which may {@link
+     * #ensureTabViewCapacity(Context, int) raise} the capacity of their pool until it ends.
+     */
+    static void beginTabViewPrewarm(@NonNull Context context) {
+        synchronized (lock) {
+            obtainTabViewPool(context).prewarms++;
+        }
+    }
+
+    /**
+     * Marks the end of a pre-warm started with {@link #beginTabViewPrewarm(Context)}. Once no
+     * pre-warm of {@code context} is left, its pool is limited to {@link
+     * #getMaxTabViewsPerContext()} again. Pre-warmed TabViews above that stay pooled until taken.
+     */
+    static void endTabViewPrewarm(@NonNull Context context) {
+        synchronized (lock) {
+            final TabViewPool pool = tabViewPools.get(context);
+            if (pool != null && pool.prewarms > 0 && --pool.prewarms == 0) {
+                pool.capacity = maxTabViewsPerContext;
+            }
+        }
+    }
+
+    /**
+     * Raises the number of TabViews pooled for {@code context} to at least {@code capacity}, until
+     * the pre-warm ends.
+     */
+    static void ensureTabViewCapacity(@NonNull Context context, int capacity) {
+        synchronized (lock) {
+            final TabViewPool pool = obtainTabViewPool(context);
+            pool.capacity = Math.max(pool.capacity, capacity);
+        }
+    }
+
+    @NonNull
+    private static TabViewPool obtainTabViewPool(@NonNull Context context) {
+        TabViewPool pool = tabViewPools.get(context);
+        if (pool == null) {
+            pool = new TabViewPool(maxTabViewsPerContext);
+            tabViewPools.put(context, pool);
+        }
+        return pool;
+    }
+
+    /** Returns whether another TabView created with {@code context} can be pooled. */
+    static boolean hasTabViewCapacity(@NonNull Context context) {
+        synchronized (lock) {
+            final TabViewPool pool = tabViewPools.get(context);
+            return pool != null ? pool.views.size() < pool.capacity : maxTabViewsPerContext > 0;
+        }
+    }
+
+    static int getPooledTabViewCount(@NonNull Context context) {
+        synchronized (lock) {
+            final TabViewPool pool = tabViewPools.get(context);
+            return pool != null ? pool.views.size() : 0;
+        }
+    }
+
+    private static void trimList(@NonNull ArrayList<?> list, int size) {
+        for (int i = list.size() - 1; i >= size; i--) {
+            list.remove(i);
+        }
+    }
+
+    /** Drops the pools of every context belonging to {@code activity}. */
+    private static void removeActivity(@NonNull Activity activity) {
+        synchronized (lock) {
+            final Iterator<Context> iterator = tabViewPools.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (findActivity(iterator.next()) == activity) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static boolean isDestroyed(@NonNull Context context) {
+        final Activity activity = findActivity(context);
+        if (activity == null) {
+            return false;
+        }
+        return activity.isFinishing()
+                || (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1
+                        && activity.isDestroyed());
+    }
+
+    @Nullable
+    private static Activity findActivity(@NonNull Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return (Activity) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    /**
+     * Registers the callbacks trimming the pools and caches of the process, once per application.
+     */
+    static void registerCallbacks(@NonNull Context context) {
+        final Context applicationContext = context.getApplicationContext();
+        if (!(applicationContext instanceof Application)) {
+            return;
+        }
+        final Application application = (Application) applicationContext;
+        synchronized (lock) {
+            if (registeredApplication == application) {
+                return;
+            }
+            registeredApplication = application;
+        }
+        application.registerComponentCallbacks(
+                new ComponentCallbacks2() {
+                    @Override
+                    public void onTrimMemory(int level) {
+                        trimMemory(level);
+                        TextMeasureCache.trimMemory(level);
+                        BadgeGlyphAtlas.trimMemory(level);
+                    }
+
+                    @Override
+                    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+                        // Styles hold sizes and colors resolved for the old configuration, and
+                        // a change handled in place keeps the theme they are cached by
+                        TabLayoutStyle.clearCache();
+                        BadgeGlyphAtlas.clear();
+                        BadgeDrawable.clearStyleCache();
+                    }
+
+                    @Override
+                    public void onLowMemory() {
+                        clear();
+                        TextMeasureCache.clear();
+                        BadgeGlyphAtlas.clear();
+                    }
+                });
+        application.registerActivityLifecycleCallbacks(
+                new Application.ActivityLifecycleCallbacks() {
+                    @Override
+                    public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {}
+
+                    @Override
+                    public void onActivityStarted(@NonNull Activity activity) {}
+
+                    @Override
+                    public void onActivityResumed(@NonNull Activity activity) {}
+
+                    @Override
+                    public void onActivityPaused(@NonNull Activity activity) {}
+
+                    @Override
+                    public void onActivityStopped(@NonNull Activity activity) {}
+
+                    @Override
+                    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {}
+
+                    @Override
+                    public void onActivityDestroyed(@NonNull Activity activity) {
+                        removeActivity(activity);
+                    }
+                });
+    }
+
+    private static final class TabViewPool {
+        @NonNull final ArrayList<NiftyTabLayout.TabView> views = new ArrayList<>();
+        int capacity;
+        // Running pre-warms, the capacity may exceed maxTabViewsPerContext while there are any
+        int prewarms;
+
+        TabViewPool(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.litao.android.lib;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Horizontal bounds of every tab in the tab strip, indexed by tab position.
+ *
+ * <p>Positions are laid out left to right, or right to left when the strip is {@link
+ * #isReversed() reversed} (RTL), so the edges are sorted and can be searched with a binary search.
+ * Content bounds are the bounds the selection indicator uses when it is not drawn full width.
+ */
+final class TabStripGeometry {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int count;
+    private boolean reversed;
+
+    @NonNull private int[] lefts = EMPTY;
+    @NonNull private int[] rights = EMPTY;
+    @NonNull private int[] contentLefts = EMPTY;
+    @NonNull private int[] contentRights = EMPTY;
+
+    /**
+     * Prepares the geometry for {@code count} tabs. Existing arrays are reused when they are large
+     * enough.
+     *
+     * @param count number of tabs
+     * @param reversed whether position 0 is the right-most tab
+     */
+    void reset(int count, boolean reversed) {
+        if (lefts.length < count) {
+            final int capacity = Math.max(count, lefts.length * 2);
+            lefts = new int[capacity];
+            rights = new int[capacity];
+            contentLefts = new int[capacity];
+            contentRights = new int[capacity];
+        }
+        this.count = count;
+        this.reversed = reversed;
+    }
+
+    /** Invalidates the geometry, e.g. after tabs were added or removed. */
+    void clear() {
+        count = 0;
+    }
+
+    void set(int position, int left, int right, int contentLeft, int contentRight) {
+        lefts[position] = left;
+        rights[position] = right;
+        contentLefts[position] = contentLeft;
+        contentRights[position] = contentRight;
+    }
+
+    /**
+     * Returns the left edge of the content of a tab spanning {@code [left, right)}, centered and
+     * scaled by {@code widthRatio}.
+     */
+    static int contentLeft(int left, int right, int contentWidth, float widthRatio) {
+        return (int) ((left + right) / 2 - (contentWidth / 2 * widthRatio));
+    }
+
+    /**
+     * Returns the right edge of the content of a tab spanning {@code [left, right)}, centered and
+     * scaled by {@code widthRatio}.
+     */
+    static int contentRight(int left, int right, int contentWidth, float widthRatio) {
+        return (int) ((left + right) / 2 + (contentWidth / 2 * widthRatio));
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    boolean isReversed() {
+        return reversed;
+    }
+
+    boolean contains(int position) {
+        return position >= 0 && position < count;
+    }
+
+    int getLeft(int position) {
+        return lefts[position];
+    }
+
+    int getRight(int position) {
+        return rights[position];
+    }
+
+    int getWidth(int position) {
+        return rights[position] - lefts[position];
+    }
+
+    int getContentLeft(int position) {
+        return contentLefts[position];
+    }
+
+    int getContentRight(int position) {
+        return contentRights[position];
+    }
+
+    /**
+     * Returns the position of the tab containing {@code x}, or {@code -1} if there is none.
+     */
+    int positionAt(int x) {
+        final int position =
+                reversed ? firstWithLeftAtMost(x) : firstWithRightAbove(x);
+        if (position >= count || x < lefts[position] || x >= rights[position]) {
+            return -1;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the smallest position of a tab intersecting {@code [from, to)}, or {@code -1} if no
+     * tab does.
+     */
+    int firstVisible(int from, int to) {
+        final int first = reversed ? firstWithLeftBelow(to) : firstWithRightAbove(from);
+        final int last = reversed ? firstWithRightAtMost(from) - 1 : firstWithLeftAtLeast(to) - 1;
+        return first <= last ? first : -1;
+    }
+
+    /**
+     * Returns the largest position of a tab intersecting {@code [from, to)}, or {@code -1} if no
+     * tab does.
+     */
+    int lastVisible(int from, int to) {
+        final int first = reversed ? firstWithLeftBelow(to) : firstWithRightAbove(from);
+        final int last = reversed ? firstWithRightAtMost(from) - 1 : firstWithLeftAtLeast(to) - 1;
+        return first <= last ? last : -1;
+    }
+
+    // Ascending edges (LTR)
+
+    private int firstWithRightAbove(int x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (rights[mid] > x) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int firstWithLeftAtLeast(int x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (lefts[mid] >= x) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    // Descending edges (RTL)
+
+    private int firstWithLeftAtMost(int x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (lefts[mid] <= x) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int firstWithLeftBelow(int x) {
+        return firstWithLeftAtMost(x - 1);
+    }
+
+    private int firstWithRightAtMost(int x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (rights[mid] <= x) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
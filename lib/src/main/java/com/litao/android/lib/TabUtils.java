@@ -6,7 +6,9 @@ import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.text.method.TransformationMethod;
 import android.util.TypedValue;
+import android.widget.TextView;
 
 import androidx.annotation.Dimension;
 import androidx.annotation.NonNull;
@@ -21,6 +23,17 @@ public class TabUtils {
 
     private TabUtils() {}
 
+    /**
+     * Returns {@code text} the way {@code textView} displays it, e.g. in upper case for {@code
+     * textAllCaps}, by applying the view's transformation method.
+     */
+    @NonNull
+    static CharSequence getTransformedText(@NonNull TextView textView, @NonNull CharSequence text) {
+        final TransformationMethod method = textView.getTransformationMethod();
+        final CharSequence transformed = method != null ? method.getTransformation(text, textView) : null;
+        return transformed != null ? transformed : text;
+    }
+
     public static float dpToPx(@NonNull Context context, @Dimension(unit = Dimension.DP) int dp) {
         Resources r = context.getResources();
         return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp, r.getDisplayMetrics());
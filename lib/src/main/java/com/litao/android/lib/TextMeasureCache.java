@@ -0,0 +1,242 @@
+package com.litao.android.lib;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.TextPaint;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Single line widths of tab labels, shared by every {@link NiftyTabLayout} in the process. Labels
+ * repeat a lot across tabs and screens, so measuring them once saves a text layout on most tab
+ * measure passes.
+ *
+ * <p>Widths are keyed by text, density and the paint's typeface, text size, fake bold, text scale,
+ * letter spacing, locale and font feature settings, and the least recently used ones are dropped
+ * once the cache is full. Styled text ({@link Spanned}) is measured every time, its spans can
+ * change the width without changing the text. Callers pass the text as displayed, e.g. after
+ * {@code textAllCaps}.
+ */
+public final class TextMeasureCache {
+
+    /** Default number of label widths kept by the process. */
+    public static final int DEFAULT_MAX_SIZE = 128;
+
+    private static final Object lock = new Object();
+
+    private static int maxSize = DEFAULT_MAX_SIZE;
+
+    // Access ordered, the eldest entry is the least recently used one
+    private static final LinkedHashMap<Key, Float> widths =
+            new LinkedHashMap<Key, Float>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Float> eldest) {
+                    return size() > maxSize;
+                }
+            };
+
+    // Looked up with a reused key, a new one is only allocated for a miss
+    private static final Key lookupKey = new Key();
+
+    private static int hits;
+    private static int misses;
+
+    private TextMeasureCache() {}
+
+    /** Sets the number of label widths kept by the process. */
+    public static void setMaxSize(int max) {
+        synchronized (lock) {
+            maxSize = Math.max(max, 0);
+            trimTo(maxSize);
+        }
+    }
+
+    public static int getMaxSize() {
+        synchronized (lock) {
+            return maxSize;
+        }
+    }
+
+    /** Returns the number of cached widths. */
+    public static int size() {
+        synchronized (lock) {
+            return widths.size();
+        }
+    }
+
+    /** Returns the number of widths found in the cache. */
+    public static int getHits() {
+        synchronized (lock) {
+            return hits;
+        }
+    }
+
+    /** Returns the number of widths measured because they were not cached. */
+    public static int getMisses() {
+        synchronized (lock) {
+            return misses;
+        }
+    }
+
+    /** Returns the share of lookups answered from the cache, or 0 if there was none. */
+    public static float getHitRate() {
+        synchronized (lock) {
+            final int lookups = hits + misses;
+            return lookups > 0 ? (float) hits / lookups : 0f;
+        }
+    }
+
+    /** Resets the hit and miss counters. */
+    public static void resetStats() {
+        synchronized (lock) {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    /**
+     * Releases cached widths in response to {@link ComponentCallbacks2#onTrimMemory(int)}, with the
+     * same levels as {@link TabPools#trimMemory(int)}, and like it called automatically.
+     */
+    public static void trimMemory(int level) {
+        synchronized (lock) {
+            trimTo(level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW ? 0 : widths.size() / 2);
+        }
+    }
+
+    /** Releases every cached width. */
+    public static void clear() {
+        synchronized (lock) {
+            widths.clear();
+        }
+    }
+
+    /**
+     * Returns the width of {@code text} laid out on a single line with {@code paint}.
+     *
+     * @param density display density the text size was resolved with
+     */
+    static float getTextWidth(@NonNull CharSequence text, @NonNull TextPaint paint, float density) {
+        if (text instanceof Spanned) {
+            return Layout.getDesiredWidth(text, paint);
+        }
+        synchronized (lock) {
+            final Float width = widths.get(lookupKey.set(text, paint, density));
+            lookupKey.text = null;
+            if (width != null) {
+                hits++;
+                return width;
+            }
+            misses++;
+        }
+        final String string = text.toString();
+        final float width = paint.measureText(string);
+        synchronized (lock) {
+            if (maxSize > 0) {
+                widths.put(new Key().set(string, paint, density), width);
+            }
+        }
+        return width;
+    }
+
+    private static void trimTo(int size) {
+        final Iterator<Key> iterator = widths.keySet().iterator();
+        for (int i = widths.size(); i > size && iterator.hasNext(); i--) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static final class Key {
+        @Nullable CharSequence text;
+        @Nullable Typeface typeface;
+        float textSize;
+        boolean fakeBold;
+        float textScaleX;
+        float letterSpacing;
+        @Nullable Locale locale;
+        @Nullable String fontFeatureSettings;
+        float density;
+        int hash;
+
+        @NonNull
+        Key set(@NonNull CharSequence text, @NonNull TextPaint paint, float density) {
+            this.text = text;
+            typeface = paint.getTypeface();
+            textSize = paint.getTextSize();
+            fakeBold = paint.isFakeBoldText();
+            textScaleX = paint.getTextScaleX();
+            letterSpacing = Build.VERSION.SDK_INT >= 21 ? paint.getLetterSpacing() : 0f;
+            locale = Build.VERSION.SDK_INT >= 17 ? paint.getTextLocale() : null;
+            fontFeatureSettings = Build.VERSION.SDK_INT >= 21 ? paint.getFontFeatureSettings() : null;
+            this.density = density;
+            int hash = 0;
+            for (int i = 0, z = text.length(); i < z; i++) {
+                hash = 31 * hash + text.charAt(i);
+            }
+            hash = 31 * hash + (typeface != null ? typeface.hashCode() : 0);
+            hash = 31 * hash + Float.floatToIntBits(textSize);
+            hash = 31 * hash + (fakeBold ? 1 : 0);
+            hash = 31 * hash + Float.floatToIntBits(textScaleX);
+            hash = 31 * hash + Float.floatToIntBits(letterSpacing);
+            hash = 31 * hash + (locale != null ? locale.hashCode() : 0);
+            hash = 31 * hash + (fontFeatureSettings != null ? fontFeatureSettings.hashCode() : 0);
+            hash = 31 * hash + Float.floatToIntBits(density);
+            this.hash = hash;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return hash == other.hash
+                    && textSize == other.textSize
+                    && fakeBold == other.fakeBold
+                    && textScaleX == other.textScaleX
+                    && letterSpacing == other.letterSpacing
+                    && density == other.density
+                    && (typeface != null ? typeface.equals(other.typeface) : other.typeface == null)
+                    && (locale != null ? locale.equals(other.locale) : other.locale == null)
+                    && (fontFeatureSettings != null
+                            ? fontFeatureSettings.equals(other.fontFeatureSettings)
+                            : other.fontFeatureSettings == null)
+                    && contentEquals(text, other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private static boolean contentEquals(@Nullable CharSequence a, @Nullable CharSequence b) {
+            if (a == null || b == null) {
+                return a == b;
+            }
+            final int length = a.length();
+            if (length != b.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (a.charAt(i) != b.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
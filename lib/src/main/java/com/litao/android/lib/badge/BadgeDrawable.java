@@ -9,13 +9,11 @@ import android.graphics.ColorFilter;
 import android.graphics.Paint;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.ShapeDrawable;
-import android.graphics.drawable.shapes.RoundRectShape;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.text.TextPaint;
-import android.util.AttributeSet;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
@@ -26,6 +24,7 @@ import com.litao.android.lib.TabUtils;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
 
 import androidx.annotation.AttrRes;
 import androidx.annotation.ColorInt;
@@ -80,18 +79,22 @@ public class BadgeDrawable extends Drawable {
     @StyleRes private static final int DEFAULT_STYLE = R.style.LTWidget_TabLayout_Tab_Badge;
     @AttrRes private static final int DEFAULT_THEME_ATTR = R.attr.ltBadgeStyle;
 
-    /**
-     * If the badge number exceeds the maximum allowed number, append this suffix to the max badge
-     * number and display is as the badge text instead.
-     */
-    static final String DEFAULT_EXCEED_MAX_BADGE_NUMBER_SUFFIX = "+";
+    private static final Object styleLock = new Object();
+
+    // The default style of badges, resolved once per theme
+    private static final WeakHashMap<Resources.Theme, BadgeStyle> styles = new WeakHashMap<>();
 
     @NonNull private final WeakReference<Context> contextRef;
-    @NonNull private final ShapeDrawable shapeDrawable;
+    @NonNull private final Paint backgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     @NonNull private final Rect badgeBounds;
+    // badgeBounds as floats, the rounded rect draw() fills
+    @NonNull private final RectF shapeBounds = new RectF();
     private final float badgeRadius;
     private final float badgeWithTextRadius;
     private final float badgeWidePadding;
+    // Offset of the badge center from the anchor edge, towards the anchor
+    private final int badgeInsetWithNumber;
+    private final int badgeInsetWithoutNumber;
     @NonNull private final SavedState savedState;
 
     private float badgeCenterX;
@@ -104,13 +107,28 @@ public class BadgeDrawable extends Drawable {
     // Need to keep a local reference in order to support updating badge gravity.
     @Nullable private WeakReference<View> anchorViewRef;
     @Nullable private WeakReference<ViewGroup> customBadgeParentRef;
+    // Anchor bounds given directly instead of through a view, see updateBadgeCoordinates(Rect)
+    @NonNull private final Rect anchorBounds = new Rect();
+    private boolean hasAnchorBounds;
+    // Anchor the badge geometry was computed for, it is only computed again when the anchor, the
+    // number, the max character count or the gravity changed
+    @NonNull private final Rect anchorRect = new Rect();
+    @NonNull private final Rect lastAnchorRect = new Rect();
+    private boolean geometryValid;
 
 
     private final TextPaint textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
 
 
+    // The text draw() shows, its width and its bounds, updated when the number, the max character
+    // count or the text paint changes so that drawing neither formats nor measures anything
+    @NonNull private String badgeText = "";
     private float textWidth;
-    private boolean textWidthDirty = true;
+    @NonNull private final Rect badgeTextBounds = new Rect();
+    private boolean badgeTextDirty = true;
+
+    // Looked up on the first draw with the atlas enabled, and again once it was released
+    @Nullable private BadgeGlyphAtlas glyphAtlas;
 
 
     /**
@@ -128,6 +146,7 @@ public class BadgeDrawable extends Drawable {
         private int maxCharacterCount;
         @BadgeDrawable.BadgeGravity
         private int badgeGravity;
+        private boolean glyphAtlasEnabled;
 
         public SavedState(@NonNull Context context) {
             badgeTextColor = Color.WHITE;
@@ -140,6 +159,7 @@ public class BadgeDrawable extends Drawable {
             number = in.readInt();
             maxCharacterCount = in.readInt();
             badgeGravity = in.readInt();
+            glyphAtlasEnabled = in.readInt() != 0;
         }
 
         public static final Creator<SavedState> CREATOR =
@@ -170,6 +190,7 @@ public class BadgeDrawable extends Drawable {
             dest.writeInt(number);
             dest.writeInt(maxCharacterCount);
             dest.writeInt(badgeGravity);
+            dest.writeInt(glyphAtlasEnabled ? 1 : 0);
         }
     }
 
@@ -182,28 +203,31 @@ public class BadgeDrawable extends Drawable {
     @NonNull
     static BadgeDrawable createFromSavedState(
             @NonNull Context context, @NonNull SavedState savedState) {
-        BadgeDrawable badge = new BadgeDrawable(context);
+        BadgeDrawable badge = new BadgeDrawable(context, BadgeStyle.obtain(context));
         badge.restoreFromSavedState(savedState);
         return badge;
     }
 
-    /** Creates an instance of BadgeDrawable with default values. */
+    /**
+     * Creates an instance of BadgeDrawable with default values. The default badge style is resolved
+     * once per theme, following badges copy it.
+     */
     @NonNull
     public static BadgeDrawable create(@NonNull Context context) {
-        return createFromAttributes(context, /* attrs= */ null, DEFAULT_THEME_ATTR, DEFAULT_STYLE);
+        final BadgeStyle style = BadgeStyle.obtain(context);
+        BadgeDrawable badge = new BadgeDrawable(context, style);
+        badge.restoreFromSavedState(style.defaults);
+        return badge;
     }
 
-
-    /** Returns a BadgeDrawable from the given attributes. */
-    @NonNull
-    private static BadgeDrawable createFromAttributes(
-            @NonNull Context context,
-            AttributeSet attrs,
-            @AttrRes int defStyleAttr,
-            @StyleRes int defStyleRes) {
-        BadgeDrawable badge = new BadgeDrawable(context);
-        badge.loadDefaultStateFromAttributes(context, attrs, defStyleAttr, defStyleRes);
-        return badge;
+    /**
+     * Drops the badge styles resolved so far, e.g. after the app changed a theme in place. Called
+     * automatically on a configuration change, which may change the badge dimensions.
+     */
+    public static void clearStyleCache() {
+        synchronized (styleLock) {
+            styles.clear();
+        }
     }
 
     /**
@@ -229,32 +253,8 @@ public class BadgeDrawable extends Drawable {
         setBadgeTextColor(savedState.badgeTextColor);
 
         setBadgeGravity(savedState.badgeGravity);
-    }
-
-    private void loadDefaultStateFromAttributes(
-            Context context, AttributeSet attrs, @AttrRes int defStyleAttr, @StyleRes int defStyleRes) {
-
-        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.LTBadge, defStyleAttr, defStyleRes);
-
-        setMaxCharacterCount(
-                a.getInt(R.styleable.LTBadge_ltMaxCharacterCount, DEFAULT_MAX_BADGE_CHARACTER_COUNT));
-
-        // Only set the badge number if it exists in the style.
-        // Defaulting it to 0 means the badge will incorrectly show text when the user may want a
-        // numberless badge.
-        if (a.hasValue(R.styleable.LTBadge_ltNumber)) {
-            setNumber(a.getInt(R.styleable.LTBadge_ltNumber, 0));
-        }
 
-
-        setBackgroundColor(a.getColor(R.styleable.LTBadge_ltBackgroundColor, Color.RED));
-
-        if (a.hasValue(R.styleable.LTBadge_ltBadgeTextColor)) {
-            setBadgeTextColor(a.getColor(R.styleable.LTBadge_ltBadgeTextColor, Color.WHITE));
-        }
-
-        setBadgeGravity(a.getInt(R.styleable.LTBadge_ltBadgeGravity, TOP_END));
-        a.recycle();
+        setGlyphAtlasEnabled(savedState.glyphAtlasEnabled);
     }
 
     private static int readColorFromAttributes(
@@ -262,24 +262,85 @@ public class BadgeDrawable extends Drawable {
         return TabUtils.getColorStateList(context, a, index).getDefaultColor();
     }
 
-    private BadgeDrawable(@NonNull Context context) {
+    private BadgeDrawable(@NonNull Context context, @NonNull BadgeStyle style) {
         this.contextRef = new WeakReference<>(context);
-        Resources res = context.getResources();
         badgeBounds = new Rect();
 
-
-        badgeRadius = res.getDimensionPixelSize(R.dimen.tab_badge_radius);
-        badgeWidePadding = res.getDimensionPixelSize(R.dimen.tab_badge_text_padding);
-        badgeWithTextRadius = res.getDimensionPixelSize(R.dimen.tab_badge_with_text_radius);
-
-        float[] externalRound = {badgeWithTextRadius, badgeWithTextRadius, badgeWithTextRadius, badgeWithTextRadius, badgeWithTextRadius, badgeWithTextRadius, badgeWithTextRadius, badgeWithTextRadius};
-        shapeDrawable = new ShapeDrawable(new RoundRectShape(externalRound, null, null));
+        badgeRadius = style.badgeRadius;
+        badgeWidePadding = style.badgeWidePadding;
+        badgeWithTextRadius = style.badgeWithTextRadius;
+        badgeInsetWithNumber = style.badgeInsetWithNumber;
+        badgeInsetWithoutNumber = style.badgeInsetWithoutNumber;
 
         textPaint.setTextAlign(Paint.Align.CENTER);
-        textPaint.setTextSize(res.getDimension(R.dimen.tab_badge_text_size));
+        textPaint.setTextSize(style.textSize);
         this.savedState = new SavedState(context);
     }
 
+    /**
+     * The default badge style and dimensions resolved against a theme. Immutable and shared by the
+     * badges created with that theme, each badge copies it into its own mutable state.
+     */
+    private static final class BadgeStyle {
+        final float badgeRadius;
+        final float badgeWithTextRadius;
+        final float badgeWidePadding;
+        final int badgeInsetWithNumber;
+        final int badgeInsetWithoutNumber;
+        final float textSize;
+        // Only read, by restoreFromSavedState()
+        @NonNull final SavedState defaults;
+
+        private BadgeStyle(@NonNull Context context) {
+            final Resources res = context.getResources();
+            badgeRadius = res.getDimensionPixelSize(R.dimen.tab_badge_radius);
+            badgeWidePadding = res.getDimensionPixelSize(R.dimen.tab_badge_text_padding);
+            badgeWithTextRadius = res.getDimensionPixelSize(R.dimen.tab_badge_with_text_radius);
+            badgeInsetWithNumber = res.getDimensionPixelSize(R.dimen.tab_badge_offset_has_number);
+            badgeInsetWithoutNumber = res.getDimensionPixelSize(R.dimen.tab_badge_offset_none_number);
+            textSize = res.getDimension(R.dimen.tab_badge_text_size);
+
+            defaults = new SavedState(context);
+            TypedArray a =
+                    context.obtainStyledAttributes(
+                            null, R.styleable.LTBadge, DEFAULT_THEME_ATTR, DEFAULT_STYLE);
+            try {
+                defaults.maxCharacterCount =
+                        a.getInt(R.styleable.LTBadge_ltMaxCharacterCount, DEFAULT_MAX_BADGE_CHARACTER_COUNT);
+                // Only set the badge number if it exists in the style.
+                // Defaulting it to 0 means the badge will incorrectly show text when the user may want a
+                // numberless badge.
+                if (a.hasValue(R.styleable.LTBadge_ltNumber)) {
+                    defaults.number = Math.max(a.getInt(R.styleable.LTBadge_ltNumber, 0), 0);
+                }
+                defaults.backgroundColor = a.getColor(R.styleable.LTBadge_ltBackgroundColor, Color.RED);
+                if (a.hasValue(R.styleable.LTBadge_ltBadgeTextColor)) {
+                    defaults.badgeTextColor = a.getColor(R.styleable.LTBadge_ltBadgeTextColor, Color.WHITE);
+                }
+                defaults.badgeGravity = a.getInt(R.styleable.LTBadge_ltBadgeGravity, TOP_END);
+                defaults.glyphAtlasEnabled = a.getBoolean(R.styleable.LTBadge_ltBadgeGlyphAtlas, false);
+            } finally {
+                a.recycle();
+            }
+        }
+
+        @NonNull
+        static BadgeStyle obtain(@NonNull Context context) {
+            final Resources.Theme theme = context.getTheme();
+            synchronized (styleLock) {
+                final BadgeStyle style = styles.get(theme);
+                if (style != null) {
+                    return style;
+                }
+            }
+            final BadgeStyle style = new BadgeStyle(context);
+            synchronized (styleLock) {
+                styles.put(theme, style);
+            }
+            return style;
+        }
+    }
+
     /**
      * Calculates and updates this badge's center coordinates based on its anchor's bounds. Internally
      * also updates this BadgeDrawable's bounds, because they are dependent on the center coordinates.
@@ -292,10 +353,42 @@ public class BadgeDrawable extends Drawable {
      */
     public void updateBadgeCoordinates(
             @NonNull View anchorView, @Nullable ViewGroup customBadgeParent) {
-        this.anchorViewRef = new WeakReference<>(anchorView);
-        this.customBadgeParentRef = new WeakReference<>(customBadgeParent);
-        updateCenterAndBounds();
-        invalidateSelf();
+        if (anchorViewRef == null || anchorViewRef.get() != anchorView) {
+            anchorViewRef = new WeakReference<>(anchorView);
+            geometryValid = false;
+        }
+        if (customBadgeParentRef == null || customBadgeParentRef.get() != customBadgeParent) {
+            customBadgeParentRef = new WeakReference<>(customBadgeParent);
+            geometryValid = false;
+        }
+        hasAnchorBounds = false;
+        if (updateCenterAndBounds()) {
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * Calculates and updates this badge's center coordinates based on the bounds of an anchor which
+     * is drawn directly onto a canvas rather than being a view, in the coordinates of that canvas.
+     * Does nothing if the bounds did not change.
+     *
+     * @param anchorBounds The bounds of the anchor the badge is attached to.
+     */
+    public void updateBadgeCoordinates(@NonNull Rect anchorBounds) {
+        if (hasAnchorBounds && this.anchorBounds.equals(anchorBounds)) {
+            return;
+        }
+        if (!hasAnchorBounds) {
+            // Anchored to a view until now, the previous geometry is in other coordinates
+            geometryValid = false;
+        }
+        anchorViewRef = null;
+        customBadgeParentRef = null;
+        this.anchorBounds.set(anchorBounds);
+        hasAnchorBounds = true;
+        if (updateCenterAndBounds()) {
+            invalidateSelf();
+        }
     }
 
     /**
@@ -306,7 +399,7 @@ public class BadgeDrawable extends Drawable {
      */
     @ColorInt
     public int getBackgroundColor() {
-        return shapeDrawable.getPaint().getColor();
+        return backgroundPaint.getColor();
     }
 
     /**
@@ -317,12 +410,10 @@ public class BadgeDrawable extends Drawable {
      */
     public void setBackgroundColor(@ColorInt int backgroundColor) {
         savedState.backgroundColor = backgroundColor;
-//        ColorStateList backgroundColorStateList = ColorStateList.valueOf(backgroundColor);
-//        if (shapeDrawable.getPaint().getColor() != backgroundColorStateList) {
-//            shapeDrawable.setFillColor(backgroundColorStateList);
-            shapeDrawable.getPaint().setColor(backgroundColor);
+        if (backgroundPaint.getColor() != backgroundColor) {
+            backgroundPaint.setColor(backgroundColor);
             invalidateSelf();
-//        }
+        }
     }
 
     /**
@@ -383,7 +474,8 @@ public class BadgeDrawable extends Drawable {
         number = Math.max(0, number);
         if (this.savedState.number != number) {
             this.savedState.number = number;
-            textWidthDirty = true;
+            badgeTextDirty = true;
+            geometryValid = false;
             updateCenterAndBounds();
             invalidateSelf();
         }
@@ -391,8 +483,13 @@ public class BadgeDrawable extends Drawable {
 
     /** Resets any badge number so that a numberless badge will be displayed. */
     public void clearNumber() {
-        savedState.number = BADGE_NUMBER_NONE;
-        invalidateSelf();
+        if (savedState.number != BADGE_NUMBER_NONE) {
+            savedState.number = BADGE_NUMBER_NONE;
+            badgeTextDirty = true;
+            geometryValid = false;
+            updateCenterAndBounds();
+            invalidateSelf();
+        }
     }
 
     /**
@@ -415,12 +512,33 @@ public class BadgeDrawable extends Drawable {
         if (this.savedState.maxCharacterCount != maxCharacterCount) {
             this.savedState.maxCharacterCount = maxCharacterCount;
             updateMaxBadgeNumber();
-            textWidthDirty = true;
+            badgeTextDirty = true;
+            geometryValid = false;
             updateCenterAndBounds();
             invalidateSelf();
         }
     }
 
+    /**
+     * Sets whether the number is drawn from a {@link BadgeGlyphAtlas}, digits rendered once and shared
+     * by every badge with the same text size and typeface, instead of being laid out as text. Worth it
+     * with many numeric badges on screen.
+     *
+     * @attr ref com.litao.android.lib.R.styleable#LTBadge_ltBadgeGlyphAtlas
+     */
+    public void setGlyphAtlasEnabled(boolean enabled) {
+        if (savedState.glyphAtlasEnabled != enabled) {
+            savedState.glyphAtlasEnabled = enabled;
+            glyphAtlas = null;
+            invalidateSelf();
+        }
+    }
+
+    /** Returns whether the number is drawn from a {@link BadgeGlyphAtlas}. */
+    public boolean isGlyphAtlasEnabled() {
+        return savedState.glyphAtlasEnabled;
+    }
+
     @BadgeDrawable.BadgeGravity
     public int getBadgeGravity() {
         return savedState.badgeGravity;
@@ -434,9 +552,9 @@ public class BadgeDrawable extends Drawable {
     public void setBadgeGravity(@BadgeDrawable.BadgeGravity int gravity) {
         if (savedState.badgeGravity != gravity) {
             savedState.badgeGravity = gravity;
-            if (anchorViewRef != null && anchorViewRef.get() != null) {
-                updateBadgeCoordinates(
-                        anchorViewRef.get(), customBadgeParentRef != null ? customBadgeParentRef.get() : null);
+            geometryValid = false;
+            if (updateCenterAndBounds()) {
+                invalidateSelf();
             }
         }
     }
@@ -486,7 +604,8 @@ public class BadgeDrawable extends Drawable {
         if (bounds.isEmpty() || getAlpha() == 0 || !isVisible()) {
             return;
         }
-        shapeDrawable.draw(canvas);
+        // Radii above half the height are clamped, a dot badge is drawn as a circle
+        canvas.drawRoundRect(shapeBounds, cornerRadius, cornerRadius, backgroundPaint);
         if (hasNumber()) {
             drawText(canvas);
         }
@@ -499,39 +618,50 @@ public class BadgeDrawable extends Drawable {
     }
 
 
-    private void updateCenterAndBounds() {
+    /**
+     * Computes the badge center and bounds again if the anchor bounds changed, or anything else the
+     * geometry depends on. Returns whether it did.
+     */
+    private boolean updateCenterAndBounds() {
         Context context = contextRef.get();
         View anchorView = anchorViewRef != null ? anchorViewRef.get() : null;
-        if (context == null || anchorView == null) {
-            return;
+        if (context == null || (anchorView == null && !hasAnchorBounds)) {
+            return false;
         }
-        Rect tmpRect = new Rect();
-        tmpRect.set(badgeBounds);
-
-        Rect anchorRect = new Rect();
-        // Retrieves the visible bounds of the anchor view.
-        anchorView.getDrawingRect(anchorRect);
 
-        ViewGroup customBadgeParent = customBadgeParentRef != null ? customBadgeParentRef.get() : null;
-        if (customBadgeParent != null || BadgeUtils.USE_COMPAT_PARENT) {
-            // Calculates coordinates relative to the parent.
-            ViewGroup viewGroup =
-                    customBadgeParent == null ? (ViewGroup) anchorView.getParent() : customBadgeParent;
-            viewGroup.offsetDescendantRectToMyCoords(anchorView, anchorRect);
+        if (anchorView == null) {
+            anchorRect.set(anchorBounds);
+        } else {
+            // Retrieves the visible bounds of the anchor view.
+            anchorView.getDrawingRect(anchorRect);
+
+            ViewGroup customBadgeParent =
+                    customBadgeParentRef != null ? customBadgeParentRef.get() : null;
+            if (customBadgeParent != null || BadgeUtils.USE_COMPAT_PARENT) {
+                // Calculates coordinates relative to the parent.
+                ViewGroup viewGroup =
+                        customBadgeParent == null ? (ViewGroup) anchorView.getParent() : customBadgeParent;
+                viewGroup.offsetDescendantRectToMyCoords(anchorView, anchorRect);
+            }
+        }
+        if (geometryValid && anchorRect.equals(lastAnchorRect)) {
+            return false;
         }
+        lastAnchorRect.set(anchorRect);
+        geometryValid = true;
 
-        calculateCenterAndBounds(context, anchorRect, anchorView);
+        calculateCenterAndBounds(anchorRect);
 
         BadgeUtils.updateBadgeBounds(badgeBounds, badgeCenterX, badgeCenterY, halfBadgeWidth, halfBadgeHeight);
-
-//        shapeDrawable.setCornerSize(cornerRadius);
-        if (!tmpRect.equals(badgeBounds)) {
-            shapeDrawable.setBounds(badgeBounds);
+        shapeBounds.set(badgeBounds);
+        if (anchorView == null) {
+            // Drawn directly onto the anchor's canvas, the badge covers its own bounds only
+            setBounds(badgeBounds);
         }
+        return true;
     }
 
-    private void calculateCenterAndBounds(
-            @NonNull Context context, @NonNull Rect anchorRect, @NonNull View anchorView) {
+    private void calculateCenterAndBounds(@NonNull Rect anchorRect) {
         switch (savedState.badgeGravity) {
             case BOTTOM_END:
             case BOTTOM_START:
@@ -551,17 +681,11 @@ public class BadgeDrawable extends Drawable {
         } else {
             cornerRadius = badgeWithTextRadius;
             halfBadgeHeight = cornerRadius;
-            String badgeText = getBadgeText();
-            halfBadgeWidth = getTextWidth(badgeText) / 2f + badgeWidePadding;
+            ensureBadgeText();
+            halfBadgeWidth = textWidth / 2f + badgeWidePadding;
         }
 
-        int inset =
-                context
-                        .getResources()
-                        .getDimensionPixelSize(
-                                hasNumber()
-                                        ? R.dimen.tab_badge_offset_has_number
-                                        : R.dimen.tab_badge_offset_none_number);
+        final int inset = hasNumber() ? badgeInsetWithNumber : badgeInsetWithoutNumber;
         // Update the centerX based on the badge width and 'inset' from start or end boundary of anchor.
         switch (savedState.badgeGravity) {
             case BOTTOM_START:
@@ -577,42 +701,49 @@ public class BadgeDrawable extends Drawable {
     }
 
     private void drawText(Canvas canvas) {
-        Rect textBounds = new Rect();
-        String badgeText = getBadgeText();
-        textPaint.getTextBounds(badgeText, 0, badgeText.length(), textBounds);
-        canvas.drawText(
-                badgeText,
-                badgeCenterX,
-                badgeCenterY + textBounds.height() / 2,
-                textPaint);
+        ensureBadgeText();
+        final float baseline = badgeCenterY + badgeTextBounds.height() / 2;
+        if (savedState.glyphAtlasEnabled && BadgeGlyphAtlas.canDraw(badgeText)) {
+            if (glyphAtlas == null || glyphAtlas.isReleased()) {
+                glyphAtlas = BadgeGlyphAtlas.obtain(textPaint);
+            }
+            if (glyphAtlas != null) {
+                glyphAtlas.draw(canvas, badgeText, badgeCenterX, baseline, textPaint);
+                return;
+            }
+        }
+        canvas.drawText(badgeText, badgeCenterX, baseline, textPaint);
+    }
+
+    /** Formats and measures the badge text again if it changed since the last call. */
+    private void ensureBadgeText() {
+        if (!badgeTextDirty) {
+            return;
+        }
+        badgeText = getBadgeText();
+        textWidth = calculateTextWidth(badgeText);
+        textPaint.getTextBounds(badgeText, 0, badgeText.length(), badgeTextBounds);
+        badgeTextDirty = false;
     }
 
     @NonNull
     private String getBadgeText() {
         // If number exceeds max count, show badgeMaxCount+ instead of the number.
-        if (getNumber() <= maxBadgeNumber) {
-            return Integer.toString(getNumber());
-        } else {
-            Context context = contextRef.get();
-            if (context == null) {
-                return "";
-            }
-            return maxBadgeNumber + DEFAULT_EXCEED_MAX_BADGE_NUMBER_SUFFIX;
+        if (getNumber() > maxBadgeNumber && contextRef.get() == null) {
+            return "";
         }
+        return BadgeText.format(getNumber(), maxBadgeNumber);
     }
 
     private void updateMaxBadgeNumber() {
-        maxBadgeNumber = (int) Math.pow(10.0d, (double) getMaxCharacterCount() - 1) - 1;
+        maxBadgeNumber = BadgeText.maxBadgeNumber(getMaxCharacterCount());
     }
 
+    /** Returns the width of {@code text} drawn with the badge's text paint. */
     public float getTextWidth(String text) {
-        if (!textWidthDirty) {
-            return textWidth;
-        }
-
-        textWidth = calculateTextWidth(text);
-        textWidthDirty = false;
-        return textWidth;
+        ensureBadgeText();
+        // The badge text is measured once per number, other text every time
+        return text.equals(badgeText) ? textWidth : calculateTextWidth(text);
     }
 
     private float calculateTextWidth(@Nullable CharSequence charSequence) {
@@ -0,0 +1,252 @@
+package com.litao.android.lib.badge;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * The digits and the overflow suffix of numeric badges, rendered once into a bitmap shared by every
+ * {@link BadgeDrawable} in the process which draws its text with the same size and typeface. A
+ * badge using the atlas draws its number as bitmap sub-rects instead of laying out text.
+ *
+ * <p>Glyphs are stored as alpha masks and tinted with the badge's text paint when drawn, so badges
+ * of any text color share an atlas. The least recently used atlases are dropped once more than
+ * {@link #getMaxSize()} are in use, and all of them on a configuration change.
+ *
+ * @see BadgeDrawable#setGlyphAtlasEnabled(boolean)
+ */
+public final class BadgeGlyphAtlas {
+
+    /** Default number of atlases kept by the process. */
+    public static final int DEFAULT_MAX_SIZE = 4;
+
+    private static final String GLYPHS = "0123456789" + BadgeText.DEFAULT_EXCEED_MAX_BADGE_NUMBER_SUFFIX;
+
+    // Room around each glyph for anti-aliased edges reaching beyond its advance
+    private static final int GLYPH_PADDING = 1;
+
+    private static final Object lock = new Object();
+
+    private static int maxSize = DEFAULT_MAX_SIZE;
+
+    // Access ordered, the eldest entry is the least recently used one
+    private static final LinkedHashMap<Key, BadgeGlyphAtlas> atlases =
+            new LinkedHashMap<Key, BadgeGlyphAtlas>(8, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, BadgeGlyphAtlas> eldest) {
+                    if (size() > maxSize) {
+                        eldest.getValue().released = true;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    @NonNull private final Bitmap bitmap;
+    // Left edge of each glyph's cell in the bitmap, indexed like GLYPHS
+    @NonNull private final int[] cellLefts;
+    @NonNull private final int[] cellWidths;
+    @NonNull private final float[] advances;
+    private final int ascent;
+    // Drawn on the main thread only, like the badges using the atlas
+    @NonNull private final Rect src = new Rect();
+    @NonNull private final Rect dst = new Rect();
+    // Set once the atlas was dropped, badges holding it look up a new one
+    private volatile boolean released;
+
+    private BadgeGlyphAtlas(@NonNull Paint textPaint) {
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(textPaint.getTextSize());
+        paint.setTypeface(textPaint.getTypeface());
+        paint.setFakeBoldText(textPaint.isFakeBoldText());
+        paint.setTextAlign(Paint.Align.LEFT);
+        paint.setColor(Color.BLACK);
+
+        final int count = GLYPHS.length();
+        cellLefts = new int[count];
+        cellWidths = new int[count];
+        advances = new float[count];
+        int width = 0;
+        for (int i = 0; i < count; i++) {
+            advances[i] = paint.measureText(GLYPHS, i, i + 1);
+            cellLefts[i] = width;
+            cellWidths[i] = (int) Math.ceil(advances[i]) + 2 * GLYPH_PADDING;
+            width += cellWidths[i];
+        }
+        final Paint.FontMetricsInt metrics = paint.getFontMetricsInt();
+        ascent = metrics.ascent - GLYPH_PADDING;
+        final int height = metrics.descent - ascent + GLYPH_PADDING;
+
+        bitmap = Bitmap.createBitmap(Math.max(width, 1), Math.max(height, 1), Bitmap.Config.ALPHA_8);
+        final Canvas canvas = new Canvas(bitmap);
+        for (int i = 0; i < count; i++) {
+            canvas.drawText(GLYPHS, i, i + 1, cellLefts[i] + GLYPH_PADDING, -ascent, paint);
+        }
+    }
+
+    /**
+     * Returns the atlas for text drawn with the size and typeface of {@code textPaint}, rendering it
+     * if no badge used it recently, or null if the process keeps no atlases.
+     */
+    @Nullable
+    static BadgeGlyphAtlas obtain(@NonNull Paint textPaint) {
+        final Key key =
+                new Key(textPaint.getTextSize(), textPaint.getTypeface(), textPaint.isFakeBoldText());
+        synchronized (lock) {
+            if (maxSize == 0) {
+                return null;
+            }
+            final BadgeGlyphAtlas atlas = atlases.get(key);
+            if (atlas != null) {
+                return atlas;
+            }
+        }
+        final BadgeGlyphAtlas atlas = new BadgeGlyphAtlas(textPaint);
+        synchronized (lock) {
+            // Rendered outside the lock, another thread may have put one in the meantime
+            final BadgeGlyphAtlas current = atlases.get(key);
+            if (current != null) {
+                return current;
+            }
+            atlases.put(key, atlas);
+        }
+        return atlas;
+    }
+
+    /** Sets the number of atlases kept by the process, each one a text size and typeface. */
+    public static void setMaxSize(int max) {
+        synchronized (lock) {
+            maxSize = Math.max(max, 0);
+            trimTo(maxSize);
+        }
+    }
+
+    public static int getMaxSize() {
+        synchronized (lock) {
+            return maxSize;
+        }
+    }
+
+    /** Returns the number of atlases kept by the process. */
+    public static int size() {
+        synchronized (lock) {
+            return atlases.size();
+        }
+    }
+
+    /**
+     * Releases atlases in response to {@link ComponentCallbacks2#onTrimMemory(int)}, with the same
+     * levels as {@link com.litao.android.lib.TabPools#trimMemory(int)}, and like it called
+     * automatically.
+     */
+    public static void trimMemory(int level) {
+        synchronized (lock) {
+            trimTo(level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW ? 0 : atlases.size() / 2);
+        }
+    }
+
+    /**
+     * Releases every atlas. Called automatically on a configuration change, which may change the
+     * text size or typeface of badges.
+     */
+    public static void clear() {
+        trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    private static void trimTo(int size) {
+        final Iterator<BadgeGlyphAtlas> iterator = atlases.values().iterator();
+        for (int i = atlases.size(); i > size && iterator.hasNext(); i--) {
+            iterator.next().released = true;
+            iterator.remove();
+        }
+    }
+
+    /** Returns whether the atlas was dropped from the process and should no longer be used. */
+    boolean isReleased() {
+        return released;
+    }
+
+    /** Returns whether every character of {@code text} is in the atlas. */
+    static boolean canDraw(@NonNull CharSequence text) {
+        for (int i = 0, z = text.length(); i < z; i++) {
+            if (GLYPHS.indexOf(text.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Draws {@code text}, which must pass {@link #canDraw(CharSequence)}, horizontally centered on
+     * {@code centerX} and on the baseline {@code baseline}. The glyphs are tinted with the color and
+     * alpha of {@code paint}.
+     */
+    void draw(
+            @NonNull Canvas canvas,
+            @NonNull CharSequence text,
+            float centerX,
+            float baseline,
+            @NonNull Paint paint) {
+        final int length = text.length();
+        float width = 0;
+        for (int i = 0; i < length; i++) {
+            width += advances[GLYPHS.indexOf(text.charAt(i))];
+        }
+        // Whole pixels, the glyphs are copied without scaling
+        float x = centerX - width / 2f;
+        final int top = Math.round(baseline) + ascent;
+        for (int i = 0; i < length; i++) {
+            final int glyph = GLYPHS.indexOf(text.charAt(i));
+            final int left = Math.round(x) - GLYPH_PADDING;
+            src.set(cellLefts[glyph], 0, cellLefts[glyph] + cellWidths[glyph], bitmap.getHeight());
+            dst.set(left, top, left + cellWidths[glyph], top + bitmap.getHeight());
+            canvas.drawBitmap(bitmap, src, dst, paint);
+            x += advances[glyph];
+        }
+    }
+
+    private static final class Key {
+        final float textSize;
+        @Nullable final Typeface typeface;
+        final boolean fakeBold;
+
+        Key(float textSize, @Nullable Typeface typeface, boolean fakeBold) {
+            this.textSize = textSize;
+            this.typeface = typeface;
+            this.fakeBold = fakeBold;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return textSize == other.textSize
+                    && fakeBold == other.fakeBold
+                    && (typeface != null ? typeface.equals(other.typeface) : other.typeface == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Float.floatToIntBits(textSize);
+            hash = 31 * hash + (typeface != null ? typeface.hashCode() : 0);
+            hash = 31 * hash + (fakeBold ? 1 : 0);
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.litao.android.lib.badge;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Text formatting of a numeric {@link BadgeDrawable}, kept free of Android dependencies.
+ */
+final class BadgeText {
+
+    /**
+     * If the badge number exceeds the maximum allowed number, append this suffix to the max badge
+     * number and display is as the badge text instead.
+     */
+    static final String DEFAULT_EXCEED_MAX_BADGE_NUMBER_SUFFIX = "+";
+
+    private BadgeText() {}
+
+    /**
+     * Returns the largest number which fits in {@code maxCharacterCount} characters, one character
+     * being reserved for the {@link #DEFAULT_EXCEED_MAX_BADGE_NUMBER_SUFFIX}.
+     */
+    static int maxBadgeNumber(int maxCharacterCount) {
+        return (int) Math.pow(10.0d, (double) maxCharacterCount - 1) - 1;
+    }
+
+    /**
+     * Returns the text of a badge showing {@code number}, or {@code maxBadgeNumber+} if the number
+     * exceeds {@code maxBadgeNumber}.
+     */
+    @NonNull
+    static String format(int number, int maxBadgeNumber) {
+        if (number <= maxBadgeNumber) {
+            return Integer.toString(number);
+        }
+        return maxBadgeNumber + DEFAULT_EXCEED_MAX_BADGE_NUMBER_SUFFIX;
+    }
+}
@@ -84,10 +84,12 @@ public class BadgeUtils {
             @NonNull BadgeDrawable badgeDrawable,
             @NonNull View anchor,
             @NonNull FrameLayout compatBadgeParent) {
-        Rect badgeBounds = new Rect();
         View badgeParent = USE_COMPAT_PARENT ? compatBadgeParent : anchor;
-        badgeParent.getDrawingRect(badgeBounds);
-        badgeDrawable.setBounds(badgeBounds);
+        // The drawing rect, without allocating one
+        final int scrollX = badgeParent.getScrollX();
+        final int scrollY = badgeParent.getScrollY();
+        badgeDrawable.setBounds(
+                scrollX, scrollY, scrollX + badgeParent.getWidth(), scrollY + badgeParent.getHeight());
         badgeDrawable.updateBadgeCoordinates(anchor, compatBadgeParent);
     }
 }
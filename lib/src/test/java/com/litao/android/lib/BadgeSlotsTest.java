@@ -0,0 +1,114 @@
+package com.litao.android.lib;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests for {@link BadgeSlots}.
+ */
+public class BadgeSlotsTest {
+
+    private final List<int[]> drained = new ArrayList<>();
+    private final BadgeSlots.Sink sink =
+            new BadgeSlots.Sink() {
+                @Override
+                public void onBadgeNumber(int position, int number) {
+                    drained.add(new int[] {position, number});
+                }
+            };
+
+    @Test
+    public void put_lastWriteWins() {
+        final BadgeSlots slots = new BadgeSlots(4);
+        assertTrue(slots.put(1, 3));
+        assertFalse(slots.put(1, 5));
+        assertFalse(slots.put(0, -7));
+
+        slots.drain(sink);
+
+        assertEquals(2, drained.size());
+        assertEquals(0, drained.get(0)[0]);
+        assertEquals(-1, drained.get(0)[1]);
+        assertEquals(1, drained.get(1)[0]);
+        assertEquals(5, drained.get(1)[1]);
+        assertFalse(slots.isPending());
+    }
+
+    @Test
+    public void drain_emptiesSlots() {
+        final BadgeSlots slots = new BadgeSlots(4);
+        slots.put(2, 1);
+        slots.drain(sink);
+        drained.clear();
+
+        slots.drain(sink);
+
+        assertEquals(0, drained.size());
+        assertTrue(slots.put(2, 1));
+    }
+
+    @Test
+    public void put_growsBeyondInitialCapacity() {
+        final BadgeSlots slots = new BadgeSlots(1);
+        slots.put(0, 1);
+        slots.put(40, 2);
+
+        slots.drain(sink);
+
+        assertEquals(2, drained.size());
+        assertEquals(40, drained.get(1)[0]);
+        assertEquals(2, drained.get(1)[1]);
+    }
+
+    @Test
+    public void ensureCapacity_keepsPendingNumbers() {
+        final BadgeSlots slots = new BadgeSlots(2);
+        slots.put(1, 7);
+
+        slots.ensureCapacity(16);
+        slots.drain(sink);
+        slots.drain(sink);
+
+        assertTrue(slots.capacity() >= 16);
+        // Moved to the grown slots once, and drained once
+        assertEquals(1, drained.size());
+        assertEquals(1, drained.get(0)[0]);
+        assertEquals(7, drained.get(0)[1]);
+    }
+
+    @Test
+    public void put_fromSeveralThreads() throws InterruptedException {
+        final BadgeSlots slots = new BadgeSlots(1);
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] =
+                    new Thread() {
+                        @Override
+                        public void run() {
+                            for (int i = 0; i < 1024; i++) {
+                                slots.put(offset + (i % 16) * threads.length, i);
+                            }
+                        }
+                    };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        slots.drain(sink);
+
+        // Every position was written last in the final cycle of 16 writes
+        assertEquals(64, drained.size());
+        for (int[] entry : drained) {
+            assertEquals(1008 + entry[0] / threads.length, entry[1]);
+        }
+    }
+}
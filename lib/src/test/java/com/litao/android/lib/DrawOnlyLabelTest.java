@@ -0,0 +1,57 @@
+package com.litao.android.lib;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.ContextThemeWrapper;
+import android.view.View.MeasureSpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Robolectric tests for the labels the tab strip draws itself, see {@link
+ * NiftyTabLayout#setTabDrawOnly(boolean)}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DrawOnlyLabelTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 144;
+
+    private NiftyTabLayout tabLayout;
+
+    @Before
+    public void setUp() {
+        Context context =
+                new ContextThemeWrapper(
+                        ApplicationProvider.getApplicationContext(), R.style.Theme_AppCompat_Light);
+        tabLayout = new NiftyTabLayout(context);
+        tabLayout.setTabMode(NiftyTabLayout.MODE_SCROLLABLE);
+        tabLayout.setTabDrawOnly(true);
+    }
+
+    @Test
+    public void label_isTransformedLikeTabViewLabel() {
+        // LTWidget.TabLayout.Tab, the default text appearance, sets textAllCaps
+        NiftyTabLayout.Tab tab = tabLayout.newTab().setText("Home");
+        tabLayout.addTab(tab);
+
+        tabLayout.measure(
+                MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.EXACTLY));
+        tabLayout.layout(0, 0, WIDTH, HEIGHT);
+        assertEquals("HOME", tab.labelText.toString());
+
+        tabLayout.draw(new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888)));
+        assertNotNull(tab.labelLayout);
+        assertEquals("HOME", tab.labelLayout.getText().toString());
+    }
+}
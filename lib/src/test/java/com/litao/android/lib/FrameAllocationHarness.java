@@ -0,0 +1,62 @@
+package com.litao.android.lib;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures how many bytes a per-frame callback allocates on the current thread.
+ *
+ * <p>Used to guard the scroll hot path ({@code onPageScrolled -> setScrollPosition ->
+ * updateIndicatorPosition -> draw}) against allocation regressions. Relies on the HotSpot
+ * {@code com.sun.management.ThreadMXBean} extension; {@link #isSupported()} returns false on VMs
+ * without it.
+ */
+final class FrameAllocationHarness {
+
+    /** A single frame of work to replay. */
+    interface Frame {
+        void run(int frame);
+    }
+
+    private static final int WARM_UP_ROUNDS = 3;
+
+    private FrameAllocationHarness() {}
+
+    static boolean isSupported() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Replays {@code frames} frames a few times to reach steady state, then returns the average
+     * number of bytes allocated per frame during one more replay.
+     */
+    static double bytesPerFrame(Frame frame, int frames) {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+            replay(frame, frames);
+        }
+
+        // The measurement itself may allocate, measure that first and subtract it.
+        long overheadStart = bean.getThreadAllocatedBytes(threadId);
+        long overheadEnd = bean.getThreadAllocatedBytes(threadId);
+        long overhead = overheadEnd - overheadStart;
+
+        long start = bean.getThreadAllocatedBytes(threadId);
+        replay(frame, frames);
+        long end = bean.getThreadAllocatedBytes(threadId);
+
+        return Math.max(0, end - start - overhead) / (double) frames;
+    }
+
+    private static void replay(Frame frame, int frames) {
+        for (int i = 0; i < frames; i++) {
+            frame.run(i);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.litao.android.lib;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.ColorDrawable;
+import android.view.ContextThemeWrapper;
+import android.view.View.MeasureSpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Swipes a laid out {@link NiftyTabLayout} across {@link #TAB_COUNT} tabs through {@link
+ * NiftyTabLayout#setScrollPosition(int, float, boolean)}, the way a ViewPager does, draws every
+ * frame and fails if any frame allocates once the swipe reached steady state.
+ *
+ * <p>Changing the selected tab refreshes the drawable state of two TabViews, which allocates in
+ * {@code View.onCreateDrawableState} by design, so the swipe across pages leaves the selection
+ * alone and selection updates are only exercised inside a page. Frames are drawn on a {@link
+ * NonRecordingCanvas}, Robolectric's canvas records every draw call. Colors are read from the
+ * lookup table, without it {@code TabInterpolator.colorStateListAt} allocates by design.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ScrollHotPathAllocationTest {
+
+    private static final int TAB_COUNT = 50;
+    private static final int FRAMES_PER_PAGE = 30;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 144;
+
+    private NiftyTabLayout tabLayout;
+    private Canvas canvas;
+
+    @Before
+    public void setUp() {
+        Context context =
+                new ContextThemeWrapper(
+                        ApplicationProvider.getApplicationContext(), R.style.Theme_AppCompat_Light);
+        tabLayout = new NiftyTabLayout(context);
+        tabLayout.setTabMode(NiftyTabLayout.MODE_SCROLLABLE);
+        for (int i = 0; i < TAB_COUNT; i++) {
+            tabLayout.addTab(
+                    tabLayout.newTab().setText("Tab " + i).setIcon(new ColorDrawable(Color.BLACK)));
+        }
+        tabLayout.measure(
+                MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.EXACTLY));
+        tabLayout.layout(0, 0, WIDTH, HEIGHT);
+        canvas = new NonRecordingCanvas();
+    }
+
+    @Test
+    public void swipe_doesNotAllocatePerFrame() {
+        assumeTrue(FrameAllocationHarness.isSupported());
+
+        int frames = (TAB_COUNT - 1) * FRAMES_PER_PAGE;
+        double bytesPerFrame =
+                FrameAllocationHarness.bytesPerFrame(
+                        new FrameAllocationHarness.Frame() {
+                            @Override
+                            public void run(int frame) {
+                                tabLayout.setScrollPosition(
+                                        frame / FRAMES_PER_PAGE,
+                                        (frame % FRAMES_PER_PAGE) / (float) FRAMES_PER_PAGE,
+                                        false);
+                                tabLayout.draw(canvas);
+                            }
+                        },
+                        frames);
+
+        assertEquals(0d, bytesPerFrame, 0d);
+    }
+
+    @Test
+    public void swipeWithinPage_updatingSelection_doesNotAllocatePerFrame() {
+        assumeTrue(FrameAllocationHarness.isSupported());
+
+        final int position = TAB_COUNT / 2;
+        tabLayout.getTabAt(position).select();
+
+        // Offsets below one half keep the rounded position, and with it the selected tab
+        int frames = FRAMES_PER_PAGE / 2;
+        double bytesPerFrame =
+                FrameAllocationHarness.bytesPerFrame(
+                        new FrameAllocationHarness.Frame() {
+                            @Override
+                            public void run(int frame) {
+                                tabLayout.setScrollPosition(
+                                        position, frame / (float) FRAMES_PER_PAGE, true);
+                                tabLayout.draw(canvas);
+                            }
+                        },
+                        frames);
+
+        assertEquals(0d, bytesPerFrame, 0d);
+    }
+
+    /**
+     * Canvas that drops every draw call before it reaches Robolectric's shadow, which records
+     * each call and would be counted as an allocation of the code under test.
+     */
+    private static final class NonRecordingCanvas extends Canvas {
+
+        @Override
+        public void drawArc(
+                @NonNull RectF oval,
+                float startAngle,
+                float sweepAngle,
+                boolean useCenter,
+                @NonNull Paint paint) {}
+
+        @Override
+        public void drawArc(
+                float left,
+                float top,
+                float right,
+                float bottom,
+                float startAngle,
+                float sweepAngle,
+                boolean useCenter,
+                @NonNull Paint paint) {}
+
+        @Override
+        public void drawBitmap(@NonNull Bitmap bitmap, float left, float top, Paint paint) {}
+
+        @Override
+        public void drawBitmap(@NonNull Bitmap bitmap, Rect src, @NonNull Rect dst, Paint paint) {}
+
+        @Override
+        public void drawBitmap(
+                @NonNull Bitmap bitmap, Rect src, @NonNull RectF dst, Paint paint) {}
+
+        @Override
+        public void drawBitmap(@NonNull Bitmap bitmap, @NonNull Matrix matrix, Paint paint) {}
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, @NonNull Paint paint) {}
+
+        @Override
+        public void drawColor(int color) {}
+
+        @Override
+        public void drawColor(int color, @NonNull PorterDuff.Mode mode) {}
+
+        @Override
+        public void drawLine(
+                float startX, float startY, float stopX, float stopY, @NonNull Paint paint) {}
+
+        @Override
+        public void drawOval(@NonNull RectF oval, @NonNull Paint paint) {}
+
+        @Override
+        public void drawOval(
+                float left, float top, float right, float bottom, @NonNull Paint paint) {}
+
+        @Override
+        public void drawPaint(@NonNull Paint paint) {}
+
+        @Override
+        public void drawPath(@NonNull Path path, @NonNull Paint paint) {}
+
+        @Override
+        public void drawRect(@NonNull RectF rect, @NonNull Paint paint) {}
+
+        @Override
+        public void drawRect(@NonNull Rect r, @NonNull Paint paint) {}
+
+        @Override
+        public void drawRect(
+                float left, float top, float right, float bottom, @NonNull Paint paint) {}
+
+        @Override
+        public void drawRoundRect(
+                @NonNull RectF rect, float rx, float ry, @NonNull Paint paint) {}
+
+        @Override
+        public void drawRoundRect(
+                float left,
+                float top,
+                float right,
+                float bottom,
+                float rx,
+                float ry,
+                @NonNull Paint paint) {}
+
+        @Override
+        public void drawText(
+                @NonNull char[] text,
+                int index,
+                int count,
+                float x,
+                float y,
+                @NonNull Paint paint) {}
+
+        @Override
+        public void drawText(@NonNull String text, float x, float y, @NonNull Paint paint) {}
+
+        @Override
+        public void drawText(
+                @NonNull String text,
+                int start,
+                int end,
+                float x,
+                float y,
+                @NonNull Paint paint) {}
+
+        @Override
+        public void drawText(
+                @NonNull CharSequence text,
+                int start,
+                int end,
+                float x,
+                float y,
+                @NonNull Paint paint) {}
+
+        @Override
+        public void drawTextRun(
+                @NonNull char[] text,
+                int index,
+                int count,
+                int contextIndex,
+                int contextCount,
+                float x,
+                float y,
+                boolean isRtl,
+                @NonNull Paint paint) {}
+
+        @Override
+        public void drawTextRun(
+                @NonNull CharSequence text,
+                int start,
+                int end,
+                int contextStart,
+                int contextEnd,
+                float x,
+                float y,
+                boolean isRtl,
+                @NonNull Paint paint) {}
+    }
+}
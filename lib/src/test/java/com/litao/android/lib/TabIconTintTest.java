@@ -0,0 +1,95 @@
+package com.litao.android.lib;
+
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+
+import org.junit.Test;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Local unit tests for {@link TabIconTint}.
+ */
+public class TabIconTintTest {
+
+    private static final int UNSELECTED = 0xFF666666;
+    private static final int SELECTED = 0xFF03DAC5;
+    private static final int FRAMES = 120;
+
+    @Test
+    public void swipe_mutatesIconOnce() {
+        CountingIconTint iconTint = new CountingIconTint();
+        Drawable icon = new ColorDrawable();
+        iconTint.setSource(icon);
+
+        TabInterpolator interpolator = new TabInterpolator(UNSELECTED, SELECTED, true);
+        simulateSwipe(iconTint, interpolator);
+        simulateSwipe(iconTint, interpolator);
+
+        assertEquals(1, iconTint.mutations);
+        assertSame(icon, iconTint.getDrawable());
+    }
+
+    @Test
+    public void swipe_skipsUnchangedColors() {
+        CountingIconTint iconTint = new CountingIconTint();
+        iconTint.setSource(new ColorDrawable());
+
+        TabInterpolator interpolator = new TabInterpolator(UNSELECTED, SELECTED, true);
+        int expectedTints = 0;
+        int lastColor = 0;
+        for (int frame = 0; frame <= FRAMES; frame++) {
+            // Every position is reported twice, as when the pager settles or the finger rests.
+            for (int repeat = 0; repeat < 2; repeat++) {
+                int color = interpolator.colorAt(frame / (float) FRAMES);
+                if (expectedTints == 0 || color != lastColor) {
+                    expectedTints++;
+                    lastColor = color;
+                }
+                iconTint.setTint(color);
+            }
+        }
+
+        assertEquals(expectedTints, iconTint.tints);
+        assertFalse(iconTint.setTint(SELECTED));
+    }
+
+    @Test
+    public void setSource_null_clearsTintTarget() {
+        CountingIconTint iconTint = new CountingIconTint();
+        iconTint.setSource(new ColorDrawable());
+        iconTint.setSource(null);
+
+        assertNull(iconTint.getDrawable());
+        assertFalse(iconTint.setTint(SELECTED));
+        assertEquals(0, iconTint.tints);
+    }
+
+    private static void simulateSwipe(TabIconTint iconTint, TabInterpolator interpolator) {
+        for (int frame = 0; frame <= FRAMES; frame++) {
+            iconTint.setTint(interpolator.colorAt(frame / (float) FRAMES));
+        }
+    }
+
+    private static class CountingIconTint extends TabIconTint {
+        int mutations;
+        int tints;
+
+        @NonNull
+        @Override
+        Drawable mutate(@NonNull Drawable source) {
+            mutations++;
+            return source;
+        }
+
+        @Override
+        void applyTint(@NonNull Drawable icon, int color) {
+            tints++;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.litao.android.lib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests for {@link TabInterpolator}.
+ */
+public class TabInterpolatorTest {
+
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+
+    @Test
+    public void argb_returnsEndpoints() {
+        assertEquals(RED, TabInterpolator.argb(0f, RED, BLUE));
+        assertEquals(BLUE, TabInterpolator.argb(1f, RED, BLUE));
+        assertEquals(RED, TabInterpolator.argb(-0.5f, RED, BLUE));
+        assertEquals(BLUE, TabInterpolator.argb(1.5f, RED, BLUE));
+    }
+
+    @Test
+    public void argb_blendsInLinearSpace() {
+        // Half way between red and blue in linear space is ~0xBA for both channels.
+        assertEquals(0xFFBA00BA, TabInterpolator.argb(0.5f, RED, BLUE));
+    }
+
+    @Test
+    public void lookupTable_matchesDirectEvaluation() {
+        TabInterpolator interpolator = new TabInterpolator(RED, BLUE, true);
+        for (int i = 0; i < TabInterpolator.LOOKUP_TABLE_SIZE; i++) {
+            float fraction = i / (float) (TabInterpolator.LOOKUP_TABLE_SIZE - 1);
+            assertEquals(TabInterpolator.argb(fraction, RED, BLUE), interpolator.colorAt(fraction));
+        }
+    }
+
+    @Test
+    public void setColors_rebuildsLookupTable() {
+        TabInterpolator interpolator = new TabInterpolator(RED, BLUE, true);
+        assertEquals(BLUE, interpolator.colorAt(1f));
+
+        interpolator.setColors(BLUE, RED);
+        assertEquals(BLUE, interpolator.colorAt(0f));
+        assertEquals(RED, interpolator.colorAt(1f));
+    }
+
+    @Test
+    public void lerp_interpolatesScale() {
+        assertEquals(0.8f, TabInterpolator.lerp(0.8f, 1f, 0f), 0f);
+        assertEquals(0.9f, TabInterpolator.lerp(0.8f, 1f, 0.5f), 1e-6f);
+        assertEquals(1f, TabInterpolator.lerp(0.8f, 1f, 1f), 0f);
+    }
+}
@@ -0,0 +1,36 @@
+package com.litao.android.lib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests for {@link TabLayoutMetrics}.
+ */
+public class TabLayoutMetricsTest {
+
+    @Test
+    public void accumulatesUntilReset() {
+        TabLayoutMetrics metrics = new TabLayoutMetrics();
+        metrics.addFrame(100);
+        metrics.addFrame(50);
+        metrics.addTabMeasure(20);
+        metrics.addTabViewsTouched(2);
+        metrics.addPoolAcquire(true);
+        metrics.addPoolAcquire(false);
+        metrics.addPoolAcquire(false);
+
+        assertEquals(2, metrics.getFrameCount());
+        assertEquals(150, metrics.getScrollPositionNanos());
+        assertEquals(1, metrics.getTabMeasureCount());
+        assertEquals(20, metrics.getTabMeasureNanos());
+        assertEquals(2, metrics.getTabViewsTouched());
+        assertEquals(1, metrics.getPoolHits());
+        assertEquals(2, metrics.getPoolMisses());
+
+        metrics.reset();
+        assertEquals(0, metrics.getFrameCount());
+        assertEquals(0, metrics.getScrollPositionNanos());
+        assertEquals(0, metrics.getPoolMisses());
+    }
+}
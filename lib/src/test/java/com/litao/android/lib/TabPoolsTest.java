@@ -0,0 +1,180 @@
+package com.litao.android.lib;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.widget.TextView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Robolectric tests for the Tab and TabView pools of {@link TabPools}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TabPoolsTest {
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        TabPools.clear();
+        TabPools.resetStats();
+        context =
+                new ContextThemeWrapper(
+                        ApplicationProvider.getApplicationContext(), R.style.Theme_AppCompat_Light);
+    }
+
+    @After
+    public void tearDown() {
+        TabPools.setMaxTabs(TabPools.DEFAULT_MAX_TABS);
+        TabPools.setMaxTabViewsPerContext(TabPools.DEFAULT_MAX_TAB_VIEWS_PER_CONTEXT);
+        TabPools.clear();
+        TabPools.resetStats();
+    }
+
+    @Test
+    public void acquireTab_reusesReleasedTab() {
+        NiftyTabLayout.Tab tab = new NiftyTabLayout.Tab();
+        assertTrue(TabPools.releaseTab(tab));
+        assertFalse(TabPools.releaseTab(tab));
+
+        assertSame(tab, TabPools.acquireTab());
+        assertNull(TabPools.acquireTab());
+        assertEquals(1, TabPools.getTabHits());
+        assertEquals(1, TabPools.getTabMisses());
+    }
+
+    @Test
+    public void releaseTab_respectsCapacity() {
+        TabPools.setMaxTabs(2);
+        assertTrue(TabPools.releaseTab(new NiftyTabLayout.Tab()));
+        assertTrue(TabPools.releaseTab(new NiftyTabLayout.Tab()));
+        assertFalse(TabPools.releaseTab(new NiftyTabLayout.Tab()));
+    }
+
+    @Test
+    public void trimMemory_halvesOrClears() {
+        for (int i = 0; i < 4; i++) {
+            TabPools.releaseTab(new NiftyTabLayout.Tab());
+        }
+
+        TabPools.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(2, drainTabs());
+
+        for (int i = 0; i < 4; i++) {
+            TabPools.releaseTab(new NiftyTabLayout.Tab());
+        }
+        TabPools.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(0, drainTabs());
+    }
+
+    @Test
+    public void acquireTabView_reusesTabViewOfSameContext() {
+        NiftyTabLayout.TabView tabView = newTabView(new NiftyTabLayout(context));
+        tabView.recycle();
+        assertTrue(TabPools.releaseTabView(tabView));
+        assertFalse(TabPools.releaseTabView(tabView));
+
+        Context otherContext =
+                new ContextThemeWrapper(
+                        ApplicationProvider.getApplicationContext(), R.style.Theme_AppCompat_Light);
+        assertNull(TabPools.acquireTabView(otherContext));
+        assertSame(tabView, TabPools.acquireTabView(context));
+        assertEquals(1, TabPools.getTabViewHits());
+        assertEquals(1, TabPools.getTabViewMisses());
+    }
+
+    @Test
+    public void attach_rebuildsDefaultViewsBuiltTheOtherWay() {
+        NiftyTabLayout inflating = new NiftyTabLayout(context);
+        inflating.setInflateDefaultTabViews(true);
+        NiftyTabLayout.TabView tabView = newTabView(inflating);
+        TextView inflatedText = findTextView(tabView);
+        assertNotNull(inflatedText);
+        tabView.recycle();
+
+        NiftyTabLayout building = new NiftyTabLayout(context);
+        building.setInflateDefaultTabViews(false);
+        tabView.attach(building);
+        tabView.update();
+        TextView builtText = findTextView(tabView);
+        assertNotNull(builtText);
+        assertNotSame(inflatedText, builtText);
+        assertEquals(2, tabView.getChildCount());
+        tabView.recycle();
+
+        // Same construction mode, the default views are kept
+        NiftyTabLayout alsoBuilding = new NiftyTabLayout(context);
+        alsoBuilding.setInflateDefaultTabViews(false);
+        tabView.attach(alsoBuilding);
+        tabView.update();
+        assertSame(builtText, findTextView(tabView));
+    }
+
+    @Test
+    public void endTabViewPrewarm_restoresCapacity() {
+        TabPools.setMaxTabViewsPerContext(2);
+        NiftyTabLayout tabLayout = new NiftyTabLayout(context);
+
+        TabPools.beginTabViewPrewarm(context);
+        TabPools.ensureTabViewCapacity(context, 4);
+        for (int i = 0; i < 4; i++) {
+            NiftyTabLayout.TabView tabView = newTabView(tabLayout);
+            tabView.recycle();
+            assertTrue(TabPools.releaseTabView(tabView));
+        }
+        TabPools.endTabViewPrewarm(context);
+
+        // Pre-warmed TabViews stay pooled, but no more are taken above the limit
+        assertEquals(4, TabPools.getPooledTabViewCount(context));
+        assertFalse(TabPools.hasTabViewCapacity(context));
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(TabPools.acquireTabView(context));
+        }
+        assertTrue(TabPools.hasTabViewCapacity(context));
+    }
+
+    @NonNull
+    private static NiftyTabLayout.TabView newTabView(@NonNull NiftyTabLayout tabLayout) {
+        NiftyTabLayout.TabView tabView = new NiftyTabLayout.TabView(tabLayout);
+        // Without a tab, update() only creates the default icon and text views
+        tabView.update();
+        return tabView;
+    }
+
+    @Nullable
+    private static TextView findTextView(@NonNull NiftyTabLayout.TabView tabView) {
+        for (int i = 0; i < tabView.getChildCount(); i++) {
+            View child = tabView.getChildAt(i);
+            if (child instanceof TextView) {
+                return (TextView) child;
+            }
+        }
+        return null;
+    }
+
+    private static int drainTabs() {
+        int count = 0;
+        while (TabPools.acquireTab() != null) {
+            count++;
+        }
+        return count;
+    }
+}
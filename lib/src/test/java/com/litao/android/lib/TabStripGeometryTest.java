@@ -0,0 +1,104 @@
+package com.litao.android.lib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests for {@link TabStripGeometry}.
+ */
+public class TabStripGeometryTest {
+
+    private static final int TAB_WIDTH = 100;
+
+    @Test
+    public void positionAt_ltr() {
+        TabStripGeometry geometry = layout(5, false);
+
+        assertEquals(0, geometry.positionAt(0));
+        assertEquals(0, geometry.positionAt(99));
+        assertEquals(1, geometry.positionAt(100));
+        assertEquals(4, geometry.positionAt(499));
+        assertEquals(-1, geometry.positionAt(500));
+        assertEquals(-1, geometry.positionAt(-1));
+    }
+
+    @Test
+    public void positionAt_rtl() {
+        TabStripGeometry geometry = layout(5, true);
+
+        assertEquals(4, geometry.positionAt(0));
+        assertEquals(0, geometry.positionAt(499));
+        assertEquals(3, geometry.positionAt(150));
+        assertEquals(-1, geometry.positionAt(500));
+    }
+
+    @Test
+    public void visibleRange_ltr() {
+        TabStripGeometry geometry = layout(1000, false);
+
+        assertEquals(10, geometry.firstVisible(1050, 1350));
+        assertEquals(13, geometry.lastVisible(1050, 1350));
+
+        assertEquals(10, geometry.firstVisible(1000, 1300));
+        assertEquals(12, geometry.lastVisible(1000, 1300));
+    }
+
+    @Test
+    public void visibleRange_rtl() {
+        TabStripGeometry geometry = layout(1000, true);
+
+        // Tab p covers [(999 - p) * 100, (1000 - p) * 100)
+        assertEquals(986, geometry.firstVisible(1050, 1350));
+        assertEquals(989, geometry.lastVisible(1050, 1350));
+    }
+
+    @Test
+    public void visibleRange_outsideStrip() {
+        TabStripGeometry geometry = layout(3, false);
+
+        assertEquals(-1, geometry.firstVisible(400, 800));
+        assertEquals(-1, geometry.lastVisible(400, 800));
+        assertEquals(-1, new TabStripGeometry().firstVisible(0, 100));
+    }
+
+    @Test
+    public void bounds_areReadBack() {
+        TabStripGeometry geometry = layout(3, false);
+
+        assertEquals(200, geometry.getLeft(2));
+        assertEquals(300, geometry.getRight(2));
+        assertEquals(225, geometry.getContentLeft(2));
+        assertEquals(275, geometry.getContentRight(2));
+        assertTrue(geometry.contains(2));
+        assertFalse(geometry.contains(3));
+
+        geometry.clear();
+        assertFalse(geometry.contains(0));
+    }
+
+    @Test
+    public void reset_growsAndReusesStorage() {
+        TabStripGeometry geometry = layout(3, false);
+        geometry.reset(2, false);
+        assertEquals(2, geometry.getCount());
+        assertEquals(100, geometry.getLeft(1));
+
+        geometry = layout(64, false);
+        assertEquals(6300, geometry.getLeft(63));
+        assertEquals(TAB_WIDTH, geometry.getWidth(63));
+    }
+
+    private static TabStripGeometry layout(int count, boolean reversed) {
+        TabStripGeometry geometry = new TabStripGeometry();
+        geometry.reset(count, reversed);
+        for (int position = 0; position < count; position++) {
+            int slot = reversed ? count - 1 - position : position;
+            int left = slot * TAB_WIDTH;
+            geometry.set(position, left, left + TAB_WIDTH, left + 25, left + 75);
+        }
+        return geometry;
+    }
+}
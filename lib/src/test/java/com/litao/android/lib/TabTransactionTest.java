@@ -0,0 +1,78 @@
+package com.litao.android.lib;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Robolectric tests for the tab transactions of {@link NiftyTabLayout}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TabTransactionTest {
+
+    private NiftyTabLayout tabLayout;
+
+    @Before
+    public void setUp() {
+        TabPools.clear();
+        Context context =
+                new ContextThemeWrapper(
+                        ApplicationProvider.getApplicationContext(), R.style.Theme_AppCompat_Light);
+        tabLayout = new NiftyTabLayout(context);
+        for (String text : new String[] {"A", "B", "C"}) {
+            tabLayout.addTab(tabLayout.newTab().setText(text));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        TabPools.clear();
+    }
+
+    @Test
+    public void removeThenAdd_doesNotReuseRemovedTab() {
+        NiftyTabLayout.Tab removed = tabLayout.getTabAt(1);
+        tabLayout.selectTab(removed);
+
+        tabLayout.beginTabTransaction();
+        tabLayout.removeTab(removed);
+        NiftyTabLayout.Tab added = tabLayout.newTab().setText("D");
+        tabLayout.addTab(added);
+
+        assertNotSame(removed, added);
+        assertEquals(-1, tabLayout.getSelectedTabPosition());
+
+        tabLayout.commitTabTransaction();
+        // The removed tab's fallback, not the added one
+        assertEquals(0, tabLayout.getSelectedTabPosition());
+        assertEquals("A", tabLayout.getTabAt(0).getText());
+        assertEquals("D", tabLayout.getTabAt(2).getText());
+    }
+
+    @Test
+    public void removeThenAdd_selectionOfRemovedTabFallsBackToFirstTab() {
+        tabLayout.selectTab(tabLayout.getTabAt(1));
+
+        tabLayout.beginTabTransaction();
+        NiftyTabLayout.Tab removed = tabLayout.getTabAt(2);
+        tabLayout.selectTab(removed);
+        tabLayout.removeTab(removed);
+        tabLayout.addTab(tabLayout.newTab().setText("D"));
+
+        // The selection only changes on commit
+        assertEquals(1, tabLayout.getSelectedTabPosition());
+
+        tabLayout.commitTabTransaction();
+        assertEquals(0, tabLayout.getSelectedTabPosition());
+    }
+}
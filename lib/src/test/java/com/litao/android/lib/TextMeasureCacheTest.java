@@ -0,0 +1,108 @@
+package com.litao.android.lib;
+
+import android.content.ComponentCallbacks2;
+import android.text.TextPaint;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Robolectric tests for {@link TextMeasureCache}. Robolectric's paint does not lay text out, so
+ * these only cover the keys, eviction and statistics.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TextMeasureCacheTest {
+
+    private TextPaint paint;
+
+    @Before
+    public void setUp() {
+        paint = new TextPaint();
+        TextMeasureCache.clear();
+        TextMeasureCache.resetStats();
+    }
+
+    @After
+    public void tearDown() {
+        TextMeasureCache.setMaxSize(TextMeasureCache.DEFAULT_MAX_SIZE);
+        TextMeasureCache.clear();
+        TextMeasureCache.resetStats();
+    }
+
+    @Test
+    public void getTextWidth_cachesByContent() {
+        TextMeasureCache.getTextWidth("Home", paint, 2f);
+        TextMeasureCache.getTextWidth(new StringBuilder("Home"), paint, 2f);
+
+        assertEquals(1, TextMeasureCache.getHits());
+        assertEquals(1, TextMeasureCache.getMisses());
+        assertEquals(0.5f, TextMeasureCache.getHitRate(), 0f);
+    }
+
+    @Test
+    public void getTextWidth_keysByDensity() {
+        TextMeasureCache.getTextWidth("Home", paint, 2f);
+        TextMeasureCache.getTextWidth("Home", paint, 3f);
+
+        assertEquals(0, TextMeasureCache.getHits());
+        assertEquals(2, TextMeasureCache.size());
+    }
+
+    @Test
+    public void getTextWidth_keysByLocale() {
+        paint.setTextLocale(Locale.ENGLISH);
+        TextMeasureCache.getTextWidth("Home", paint, 1f);
+        paint.setTextLocale(Locale.JAPANESE);
+        TextMeasureCache.getTextWidth("Home", paint, 1f);
+
+        assertEquals(0, TextMeasureCache.getHits());
+        assertEquals(2, TextMeasureCache.size());
+    }
+
+    @Test
+    public void getTextWidth_keysByFontFeatureSettings() {
+        TextMeasureCache.getTextWidth("Home", paint, 1f);
+        paint.setFontFeatureSettings("smcp");
+        TextMeasureCache.getTextWidth("Home", paint, 1f);
+        TextMeasureCache.getTextWidth("Home", paint, 1f);
+
+        assertEquals(1, TextMeasureCache.getHits());
+        assertEquals(2, TextMeasureCache.size());
+    }
+
+    @Test
+    public void getTextWidth_evictsLeastRecentlyUsed() {
+        TextMeasureCache.setMaxSize(2);
+        TextMeasureCache.getTextWidth("Home", paint, 1f);
+        TextMeasureCache.getTextWidth("News", paint, 1f);
+        TextMeasureCache.getTextWidth("Home", paint, 1f);
+        TextMeasureCache.getTextWidth("Sports", paint, 1f);
+        TextMeasureCache.resetStats();
+
+        TextMeasureCache.getTextWidth("Home", paint, 1f);
+        TextMeasureCache.getTextWidth("News", paint, 1f);
+
+        assertEquals(1, TextMeasureCache.getHits());
+        assertEquals(1, TextMeasureCache.getMisses());
+    }
+
+    @Test
+    public void trimMemory_halvesOrClears() {
+        for (int i = 0; i < 4; i++) {
+            TextMeasureCache.getTextWidth("Tab " + i, paint, 1f);
+        }
+
+        TextMeasureCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(2, TextMeasureCache.size());
+
+        TextMeasureCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(0, TextMeasureCache.size());
+    }
+}
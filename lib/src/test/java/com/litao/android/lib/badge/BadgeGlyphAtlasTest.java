@@ -0,0 +1,25 @@
+package com.litao.android.lib.badge;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests for {@link BadgeGlyphAtlas}. Rendering needs a device, these only cover which
+ * badge texts the atlas can draw.
+ */
+public class BadgeGlyphAtlasTest {
+
+    @Test
+    public void canDraw_digitsAndSuffix() {
+        assertTrue(BadgeGlyphAtlas.canDraw("0123456789"));
+        assertTrue(BadgeGlyphAtlas.canDraw(BadgeText.format(1000, 999)));
+    }
+
+    @Test
+    public void canDraw_rejectsOtherCharacters() {
+        assertFalse(BadgeGlyphAtlas.canDraw("1,000"));
+        assertFalse(BadgeGlyphAtlas.canDraw("new"));
+    }
+}
@@ -0,0 +1,24 @@
+package com.litao.android.lib.badge;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests for {@link BadgeText}.
+ */
+public class BadgeTextTest {
+
+    @Test
+    public void maxBadgeNumber_reservesOneCharacterForSuffix() {
+        assertEquals(9, BadgeText.maxBadgeNumber(2));
+        assertEquals(999, BadgeText.maxBadgeNumber(4));
+    }
+
+    @Test
+    public void format_appendsSuffixAboveMax() {
+        assertEquals("7", BadgeText.format(7, 99));
+        assertEquals("99", BadgeText.format(99, 99));
+        assertEquals("99+", BadgeText.format(100, 99));
+    }
+}
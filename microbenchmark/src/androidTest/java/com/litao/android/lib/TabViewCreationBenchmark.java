@@ -0,0 +1,62 @@
+package com.litao.android.lib;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+
+import com.litao.android.lib.microbenchmark.R;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares the cost of creating a {@link NiftyTabLayout.TabView} with its default icon and text
+ * views inflated from layouts or built in code.
+ *
+ * <p>Run with {@code ./gradlew :microbenchmark:connectedAndroidTest} on a physical device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TabViewCreationBenchmark {
+
+    @Rule public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context =
+                new ContextThemeWrapper(
+                        InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                        R.style.Theme_AppCompat_Light);
+    }
+
+    @Test
+    @UiThreadTest
+    public void createTabView_inflated() {
+        createTabViews(true);
+    }
+
+    @Test
+    @UiThreadTest
+    public void createTabView_programmatic() {
+        createTabViews(false);
+    }
+
+    private void createTabViews(boolean inflate) {
+        final NiftyTabLayout tabLayout = new NiftyTabLayout(context);
+        tabLayout.setInflateDefaultTabViews(inflate);
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            final NiftyTabLayout.TabView tabView = new NiftyTabLayout.TabView(tabLayout);
+            // Without a tab, update() only creates and styles the default icon and text views
+            tabView.update();
+        }
+    }
+}